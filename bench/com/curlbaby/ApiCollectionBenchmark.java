@@ -0,0 +1,98 @@
+package com.curlbaby;
+
+import com.curlbaby.ApiCollectionManager.ApiRequest;
+import com.curlbaby.ApiCollectionManager.Header;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Read and write throughput of the collection database, on a scratch SQLite
+ * file with one group of GROUP_SIZE saved requests of eight headers each.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApiCollectionBenchmark {
+
+    private static final int GROUP_SIZE = 100;
+    private static final String GROUP_NAME = "bench";
+
+    private Path directory;
+    private ApiCollectionManager manager;
+    private int groupId;
+    private int requestId;
+    private Map<String, String> headers;
+    private int saved;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("curlbaby-bench");
+        manager = new ApiCollectionManager(directory.resolve("curlbaby.db").toString());
+        if (!manager.createGroup(GROUP_NAME, "benchmark data")) {
+            throw new IllegalStateException("Could not create the benchmark database (is sqlite-jdbc on the classpath?)");
+        }
+        groupId = manager.getGroupIdByName(GROUP_NAME);
+
+        headers = new LinkedHashMap<>();
+        for (Header header : BenchmarkData.headers(8)) {
+            headers.putIfAbsent(header.name(), header.value());
+        }
+        for (int i = 0; i < GROUP_SIZE; i++) {
+            manager.saveRequest(groupId, "request-" + i, "GET", "http://127.0.0.1:8080/users/" + i,
+                    headers, null, "");
+        }
+        requestId = manager.getRequestsByGroupId(groupId).get(GROUP_SIZE / 2).id();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        manager.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<ApiRequest> getRequestsByGroupId() {
+        return manager.getRequestsByGroupId(groupId);
+    }
+
+    @Benchmark
+    public ApiRequest getRequestById() {
+        return manager.getRequestById(requestId);
+    }
+
+    @Benchmark
+    public Integer getGroupIdByName() {
+        return manager.getGroupIdByName(GROUP_NAME);
+    }
+
+    @Benchmark
+    public boolean saveRequest() {
+        return manager.saveRequest(groupId, "saved-" + saved++, "POST", "http://127.0.0.1:8080/users",
+                headers, "{\"name\":\"bench\"}", "");
+    }
+}
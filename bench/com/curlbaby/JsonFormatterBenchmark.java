@@ -0,0 +1,72 @@
+package com.curlbaby;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JsonFormatter on response-like documents from 1 KB to 1 MB: the String
+ * entry points used by the json commands and the streaming path that prints
+ * response bodies.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonFormatterBenchmark {
+
+    @Param({"1024", "65536", "1048576"})
+    private int size;
+
+    private final JsonFormatter formatter = new JsonFormatter();
+    private String json;
+    private byte[] jsonBytes;
+    private String prettyJson;
+
+    @Setup
+    public void setUp() {
+        json = BenchmarkData.jsonArray(size);
+        jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+        prettyJson = formatter.formatJson(json);
+    }
+
+    @Benchmark
+    public String formatJson() {
+        return formatter.formatJson(json);
+    }
+
+    @Benchmark
+    public String compactJson() {
+        return formatter.compactJson(prettyJson);
+    }
+
+    @Benchmark
+    public boolean isValidJson() {
+        return formatter.isValidJson(json);
+    }
+
+    @Benchmark
+    public boolean isValidJsonBytes() {
+        return formatter.isValidJson(jsonBytes);
+    }
+
+    @Benchmark
+    public long formatJsonStreaming() throws IOException {
+        return formatter.formatJson(new ByteArrayInputStream(jsonBytes), OutputStream.nullOutputStream());
+    }
+}
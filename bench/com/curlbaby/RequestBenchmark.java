@@ -0,0 +1,70 @@
+package com.curlbaby;
+
+import com.curlbaby.HttpRequestHandler.Request;
+import com.curlbaby.HttpRequestHandler.Response;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole requests against the stub server on loopback: send() is the
+ * transport alone (pooled connection, body read), executeRequest() adds
+ * everything a 'get' prints, with the terminal output thrown away.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestBenchmark {
+
+    @Param({"1024", "65536"})
+    private int size;
+
+    private StubServer server;
+    private HttpRequestHandler handler;
+    private String url;
+    private PrintStream console;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = StubServer.start(StubServer.Settings.parse(
+                new String[] {"--port", "0", "--size", String.valueOf(size)}));
+        url = "http://127.0.0.1:" + server.getPort() + "/users";
+        handler = new HttpRequestHandler(new UIManager(), null);
+        handler.setInteractive(false);
+
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(console);
+        server.stop();
+    }
+
+    @Benchmark
+    public Response send() throws IOException {
+        return handler.send(new Request("GET", url));
+    }
+
+    @Benchmark
+    public void executeRequest() {
+        handler.executeRequest(new Request("GET", url));
+    }
+}
@@ -0,0 +1,51 @@
+package com.curlbaby;
+
+import com.curlbaby.ApiCollectionManager.ApiRequest;
+import com.curlbaby.HttpRequestHandler.Request;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Turning a saved row into an executable request, as 'run', 'group run' and
+ * 'bench' do before every send: header folding and body selection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SavedRequestBenchmark {
+
+    @Param({"2", "10", "50"})
+    private int headerCount;
+
+    private ApiRequest get;
+    private ApiRequest post;
+
+    @Setup
+    public void setUp() {
+        get = BenchmarkData.savedRequest("GET", headerCount);
+        post = BenchmarkData.savedRequest("POST", headerCount);
+    }
+
+    @Benchmark
+    public Request toHttpRequestGet() {
+        return ApiCollectionCommands.toHttpRequest(get);
+    }
+
+    @Benchmark
+    public Request toHttpRequestPost() {
+        return ApiCollectionCommands.toHttpRequest(post);
+    }
+}
@@ -0,0 +1,54 @@
+#!/bin/bash
+# Build and run the JMH benchmarks in bench/ against the sources in src/.
+# JMH and sqlite-jdbc are downloaded from Maven Central into bench/lib on
+# first use. Arguments go to JMH, e.g.
+#   ./benchmarks.sh                          run everything
+#   ./benchmarks.sh JsonFormatter -p size=1048576
+#   ./benchmarks.sh Request -rf json -rff results.json
+#   ./benchmarks.sh -l                       list the benchmarks
+set -e
+
+SCRIPT_DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+cd "$SCRIPT_DIR"
+
+MAVEN=https://repo1.maven.org/maven2
+BENCH_LIB=bench/lib
+BENCH_CLASSES=bench/target/classes
+JARS=(
+    "org/openjdk/jmh/jmh-core/1.37/jmh-core-1.37.jar"
+    "org/openjdk/jmh/jmh-generator-annprocess/1.37/jmh-generator-annprocess-1.37.jar"
+    "net/sf/jopt-simple/jopt-simple/5.0.4/jopt-simple-5.0.4.jar"
+    "org/apache/commons/commons-math3/3.6.1/commons-math3-3.6.1.jar"
+    "org/xerial/sqlite-jdbc/3.46.1.3/sqlite-jdbc-3.46.1.3.jar"
+    "org/slf4j/slf4j-api/1.7.36/slf4j-api-1.7.36.jar"
+)
+
+if ! command -v javac &> /dev/null; then
+    echo "Error: a JDK (javac) is required to build the benchmarks"
+    exit 1
+fi
+
+mkdir -p "$BENCH_LIB"
+for jar in "${JARS[@]}"; do
+    if [ ! -f "$BENCH_LIB/$(basename "$jar")" ]; then
+        echo "Downloading $(basename "$jar")" >&2
+        curl -fsSL -o "$BENCH_LIB/$(basename "$jar").part" "$MAVEN/$jar"
+        mv "$BENCH_LIB/$(basename "$jar").part" "$BENCH_LIB/$(basename "$jar")"
+    fi
+done
+
+if [[ "$OSTYPE" == "msys" || "$OSTYPE" == "win32" || "$OSTYPE" == "cygwin" ]]; then
+    CP_SEP=";"
+else
+    CP_SEP=":"
+fi
+CLASSPATH="lib/*${CP_SEP}${BENCH_LIB}/*"
+
+# The JMH annotation processor generates the harness classes and the
+# benchmark list while the benchmarks compile
+rm -rf bench/target
+mkdir -p "$BENCH_CLASSES" bench/target/generated-sources
+javac -encoding UTF-8 -cp "$CLASSPATH" -d "$BENCH_CLASSES" -s bench/target/generated-sources \
+    $(find src/com/curlbaby bench/com/curlbaby -name "*.java")
+
+exec java -Djava.awt.headless=true -cp "${BENCH_CLASSES}${CP_SEP}${CLASSPATH}" org.openjdk.jmh.Main "$@"
@@ -34,20 +34,22 @@ if [ -z "$JAVA_FILES" ]; then
     exit 1
 fi
 
-echo "Compiling cUrlBaby application..." 
 if [[ "$OSTYPE" == "msys" || "$OSTYPE" == "win32" || "$OSTYPE" == "cygwin" ]]; then
     CP_SEP=";"
 else
     CP_SEP=":"
 fi
  
-javac -cp "curlbaby/lib/*" -d curlbaby/target/classes $JAVA_FILES
+# Recompile only when a source file changed, so one-shot calls from scripts start fast
+STAMP=curlbaby/target/classes/.compiled
+if [ ! -f "$STAMP" ] || [ -n "$(find com/curlbaby -name '*.java' -newer "$STAMP" 2>/dev/null)" ]; then
+    if javac -cp "curlbaby/lib/*" -d curlbaby/target/classes $JAVA_FILES; then
+        touch "$STAMP"
+        echo "Compilation successful." >&2
+    else
+        echo "Compilation failed. Please fix the errors." >&2
+        exit 1
+    fi
+fi
 
-if [ $? -eq 0 ]; then
-    echo "Compilation successful. Starting cUrlBaby application..."
-    echo ""
-    java -Djava.awt.headless=true -cp "curlbaby/target/classes${CP_SEP}curlbaby/lib/*" com.curlbaby.CurlBabyApp "$@"
-else
-    echo "Compilation failed. Please fix the errors."
-    exit 1
-fi
\ No newline at end of file
+exec java -Djava.awt.headless=true -cp "curlbaby/target/classes${CP_SEP}curlbaby/lib/*" com.curlbaby.CurlBabyApp "$@"
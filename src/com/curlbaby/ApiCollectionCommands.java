@@ -1,15 +1,28 @@
 package com.curlbaby;
 
+import com.curlbaby.ApiCollectionManager.ApiGroup;
+import com.curlbaby.ApiCollectionManager.ApiRequest;
+import com.curlbaby.ApiCollectionManager.Header;
 import com.curlbaby.HttpRequestHandler.Request;
-import java.util.HashMap;
+import com.curlbaby.HttpRequestHandler.Response;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class ApiCollectionCommands {
 
+    static final int DEFAULT_GROUP_CONCURRENCY = 8;
+    private static final int DEFAULT_RATE_MAX_IN_FLIGHT = 256;
+
     private final ApiCollectionManager collectionManager;
     private final UIManager uiManager;
     private final Scanner scanner;
@@ -36,6 +49,9 @@ public class ApiCollectionCommands {
             case "run":
                 runSavedRequest(argument);
                 break;
+            case "bench":
+                benchSavedRequest(argument);
+                break;
             default:
                 uiManager.displayError("Unknown API collection command: " + command);
                 uiManager.displayInfo("Type 'help' for available commands");
@@ -68,6 +84,9 @@ public class ApiCollectionCommands {
             case "delete":
                 deleteGroup(subArgument);
                 break;
+            case "run":
+                runGroup(subArgument);
+                break;
             default:
                 uiManager.displayError("Unknown group command: " + subCommand);
                 printGroupHelp();
@@ -111,6 +130,7 @@ public class ApiCollectionCommands {
         uiManager.displayInfo("  group show <id|name> - Show details of a specific group");
         uiManager.displayInfo("  group rename <id> <new_name> - Rename a group");
         uiManager.displayInfo("  group delete <id> - Delete a group");
+        uiManager.displayInfo("  group run <id|name> [--concurrency N] - Execute every API in a group in parallel");
     }
 
     private void printApiHelp() {
@@ -120,6 +140,8 @@ public class ApiCollectionCommands {
         uiManager.displayInfo("  api show <id> - Show details of a specific API");
         uiManager.displayInfo("  api delete <id> - Delete an API request");
         uiManager.displayInfo("  run <id> - Execute a saved API request");
+        uiManager.displayInfo("  bench <id> -c <connections> -n <requests> | -d <duration> - Load test a saved API request");
+        uiManager.displayInfo("  bench <id> --rate <n>/s -d <duration> - Load test at a constant arrival rate");
     }
 
     private void createGroup(String argument) {
@@ -132,7 +154,7 @@ public class ApiCollectionCommands {
         String name = parts[0];
         String description = parts.length > 1 ? parts[1] : "";
 
-        if (description.isEmpty()) {
+        if (description.isEmpty() && requestHandler.isInteractive()) {
             System.out.print("Enter group description (optional): ");
             description = scanner.nextLine().trim();
         }
@@ -142,8 +164,20 @@ public class ApiCollectionCommands {
         }
     }
 
+    /**
+     * Whether the command may ask questions; outside the interactive shell
+     * (one-shot mode, the daemon) nobody can answer them, so it is an error.
+     */
+    private boolean canPrompt(String command) {
+        if (requestHandler.isInteractive()) {
+            return true;
+        }
+        uiManager.displayError(command + " asks for confirmation or input; run it in the interactive shell");
+        return false;
+    }
+
     private void listGroups() {
-        List<Map<String, Object>> groups = collectionManager.getAllGroups();
+        List<ApiGroup> groups = collectionManager.getAllGroups();
 
         if (groups.isEmpty()) {
             uiManager.displayInfo("No API groups found. Create one using 'group create <name>'");
@@ -151,14 +185,12 @@ public class ApiCollectionCommands {
         }
 
         uiManager.displayInfo("API Groups:");
-        for (Map<String, Object> group : groups) {
-            int id = (int) group.get("id");
-            String name = (String) group.get("name");
-            String description = (String) group.get("description");
+        for (ApiGroup group : groups) {
+            String description = group.description();
 
             System.out.printf("  %d. %s%s\n",
-                    id,
-                    name,
+                    group.id(),
+                    group.name(),
                     (description != null && !description.isEmpty() ? " - " + description : ""));
         }
     }
@@ -169,7 +201,7 @@ public class ApiCollectionCommands {
             return;
         }
 
-        Map<String, Object> group;
+        ApiGroup group;
         try {
             int groupId = Integer.parseInt(argument);
             group = collectionManager.getGroupById(groupId);
@@ -187,29 +219,28 @@ public class ApiCollectionCommands {
             return;
         }
 
-        int groupId = (int) group.get("id");
-        String name = (String) group.get("name");
-        String description = (String) group.get("description");
+        int groupId = group.id();
+        String description = group.description();
 
         uiManager.displayInfo("Group Details:");
         System.out.println("  ID: " + groupId);
-        System.out.println("  Name: " + name);
+        System.out.println("  Name: " + group.name());
         if (description != null && !description.isEmpty()) {
             System.out.println("  Description: " + description);
         }
 
         // List APIs in this group
-        List<Map<String, Object>> requests = collectionManager.getRequestsByGroupId(groupId);
+        List<ApiRequest> requests = collectionManager.getRequestsByGroupId(groupId);
         if (requests.isEmpty()) {
             uiManager.displayInfo("No API requests in this group");
         } else {
             uiManager.displayInfo("API Requests in this group:");
-            for (Map<String, Object> request : requests) {
+            for (ApiRequest request : requests) {
                 System.out.printf("  %d. [%s] %s - %s\n",
-                        (int) request.get("id"),
-                        ((String) request.get("method")).toUpperCase(),
-                        (String) request.get("name"),
-                        (String) request.get("url"));
+                        request.id(),
+                        request.method().toUpperCase(),
+                        request.name(),
+                        request.url());
             }
         }
     }
@@ -241,6 +272,9 @@ public class ApiCollectionCommands {
 
         try {
             int groupId = Integer.parseInt(argument);
+            if (!canPrompt("group delete")) {
+                return;
+            }
 
             System.out.println("⚠️ This will delete the group and all its API requests.");
             System.out.print("Are you sure? (y/n): ");
@@ -276,7 +310,7 @@ public class ApiCollectionCommands {
         try {
             groupId = Integer.parseInt(groupIdentifier);
 
-            if (collectionManager.getGroupById(groupId) == null) {
+            if (!collectionManager.groupExists(groupId)) {
                 uiManager.displayError("Group not found with ID: " + groupId);
                 return;
             }
@@ -289,6 +323,10 @@ public class ApiCollectionCommands {
             groupId = id;
         }
 
+        if (!canPrompt("api save")) {
+            return;
+        }
+
         System.out.print("HTTP Method (GET, POST, PUT, DELETE): ");
         String method = scanner.nextLine().trim().toUpperCase();
         if (!method.matches("GET|POST|PUT|DELETE")) {
@@ -303,7 +341,7 @@ public class ApiCollectionCommands {
             return;
         }
 
-        Map<String, String> headers = new HashMap<>();
+        Map<String, String> headers = new LinkedHashMap<>();
         boolean addingHeaders = true;
         while (addingHeaders) {
             System.out.print("Add header? (y/n): ");
@@ -319,18 +357,6 @@ public class ApiCollectionCommands {
             }
         }
 
-        StringBuilder headersJson = new StringBuilder("{");
-        boolean first = true;
-        for (Map.Entry<String, String> entry : headers.entrySet()) {
-            if (!first) {
-                headersJson.append(", ");
-            }
-            headersJson.append("\"").append(entry.getKey()).append("\": \"")
-                    .append(entry.getValue()).append("\"");
-            first = false;
-        }
-        headersJson.append("}");
-
         String body = "";
         if (method.equals("POST") || method.equals("PUT")) {
             System.out.print("Request body (enter 'json' for JSON editor, or type directly): ");
@@ -348,7 +374,7 @@ public class ApiCollectionCommands {
         String description = scanner.nextLine().trim();
 
         if (collectionManager.saveRequest(groupId, requestName, method, url,
-                headersJson.toString(), body, description)) {
+                headers, body, description)) {
             uiManager.displaySuccess("API request saved: " + requestName);
         }
     }
@@ -371,28 +397,28 @@ public class ApiCollectionCommands {
             groupId = id;
         }
 
-        Map<String, Object> group = collectionManager.getGroupById(groupId);
+        ApiGroup group = collectionManager.getGroupById(groupId);
         if (group == null) {
             uiManager.displayError("Group not found with ID: " + groupId);
             return;
         }
 
-        List<Map<String, Object>> requests = collectionManager.getRequestsByGroupId(groupId);
+        List<ApiRequest> requests = collectionManager.getRequestsByGroupId(groupId);
 
         if (requests.isEmpty()) {
-            uiManager.displayInfo("No API requests in group: " + group.get("name"));
+            uiManager.displayInfo("No API requests in group: " + group.name());
             return;
         }
 
-        uiManager.displayInfo("API Requests in " + group.get("name") + ":");
-        for (Map<String, Object> request : requests) {
+        uiManager.displayInfo("API Requests in " + group.name() + ":");
+        for (ApiRequest request : requests) {
             System.out.printf("  %d. [%s] %s - %s\n",
-                    (int) request.get("id"),
-                    ((String) request.get("method")).toUpperCase(),
-                    (String) request.get("name"),
-                    (String) request.get("url"));
+                    request.id(),
+                    request.method().toUpperCase(),
+                    request.name(),
+                    request.url());
 
-            String description = (String) request.get("description");
+            String description = request.description();
             if (description != null && !description.isEmpty()) {
                 System.out.println("     " + description);
             }
@@ -407,7 +433,7 @@ public class ApiCollectionCommands {
 
         try {
             int requestId = Integer.parseInt(argument);
-            Map<String, Object> request = collectionManager.getRequestById(requestId);
+            ApiRequest request = collectionManager.getRequestById(requestId);
 
             if (request == null) {
                 uiManager.displayError("API request not found with ID: " + requestId);
@@ -415,28 +441,27 @@ public class ApiCollectionCommands {
             }
 
             uiManager.displayInfo("API Request Details:");
-            System.out.println("  ID: " + request.get("id"));
-            System.out.println("  Name: " + request.get("name"));
-            System.out.println("  Method: " + request.get("method"));
-            System.out.println("  URL: " + request.get("url"));
+            System.out.println("  ID: " + request.id());
+            System.out.println("  Name: " + request.name());
+            System.out.println("  Method: " + request.method());
+            System.out.println("  URL: " + request.url());
 
-            String description = (String) request.get("description");
+            String description = request.description();
             if (description != null && !description.isEmpty()) {
                 System.out.println("  Description: " + description);
             }
 
-            String headers = (String) request.get("headers");
-            if (headers != null && !headers.equals("{}")) {
+            if (!request.headers().isEmpty()) {
                 System.out.println("  Headers: ");
-                try {
-                    System.out.println(jsonFormatter.formatJson(headers));
-                } catch (Exception e) {
-                    System.out.println("    " + headers);
+                for (Header header : request.headers()) {
+                    System.out.println("    " + header.name() + ": " + header.value());
                 }
             }
 
-            String body = (String) request.get("body");
-            if (body != null && !body.isEmpty()) {
+            String body = request.body();
+            if (request.bodyFile() != null) {
+                System.out.println("  Body: @" + request.bodyFile());
+            } else if (body != null && !body.isEmpty()) {
                 System.out.println("  Body: ");
                 if (body.trim().startsWith("{") || body.trim().startsWith("[")) {
                     try {
@@ -462,6 +487,9 @@ public class ApiCollectionCommands {
 
         try {
             int requestId = Integer.parseInt(argument);
+            if (!canPrompt("api delete")) {
+                return;
+            }
 
             System.out.println("⚠️ Are you sure you want to delete this API request?");
             System.out.print("Confirm (y/n): ");
@@ -490,46 +518,288 @@ public class ApiCollectionCommands {
 
         try {
             int requestId = Integer.parseInt(argument);
-            Map<String, Object> request = collectionManager.getRequestById(requestId);
+            ApiRequest request = collectionManager.getRequestById(requestId);
 
             if (request == null) {
                 uiManager.displayError("API request not found with ID: " + requestId);
                 return;
             }
 
-            String method = (String) request.get("method");
-            String url = (String) request.get("url");
-            String headersJson = (String) request.get("headers");
-            String body = (String) request.get("body");
+            Request httpRequest = toHttpRequest(request);
 
-            Request httpRequest = new Request(method, url);
+            uiManager.displayInfo("Executing saved request: [" + request.method() + "] " + request.name());
+            requestHandler.executeRequest(httpRequest);
 
-            if (headersJson != null && !headersJson.equals("{}")) {
+        } catch (NumberFormatException e) {
+            uiManager.displayError("Invalid request ID: " + argument);
+        }
+    }
+
+    private void runGroup(String argument) {
+        String[] tokens = argument.trim().split("\\s+");
+        String groupIdentifier = null;
+        int concurrency = DEFAULT_GROUP_CONCURRENCY;
+
+        for (int i = 0; i < tokens.length; i++) {
+            if (tokens[i].equals("--concurrency") || tokens[i].equals("-c")) {
+                if (i + 1 >= tokens.length) {
+                    uiManager.displayError("Missing value for " + tokens[i]);
+                    return;
+                }
                 try {
-                    headersJson = headersJson.replaceAll("[{}\"]", "");
-                    String[] headerPairs = headersJson.split(",");
-                    for (String pair : headerPairs) {
-                        String[] keyValue = pair.split(":", 2);
-                        if (keyValue.length == 2) {
-                            String key = keyValue[0].trim();
-                            String value = keyValue[1].trim();
-                            httpRequest.addHeader(key, value);
-                        }
-                    }
-                } catch (Exception e) {
-                    System.out.println("⚠️ Error parsing headers: " + e.getMessage());
+                    concurrency = Integer.parseInt(tokens[++i]);
+                } catch (NumberFormatException e) {
+                    uiManager.displayError("Invalid concurrency: " + tokens[i]);
+                    return;
                 }
+                if (concurrency < 1) {
+                    uiManager.displayError("Concurrency must be at least 1");
+                    return;
+                }
+            } else if (groupIdentifier == null && !tokens[i].isEmpty()) {
+                groupIdentifier = tokens[i];
             }
+        }
+
+        if (groupIdentifier == null) {
+            uiManager.displayError("Usage: group run <id|name> [--concurrency N]");
+            return;
+        }
 
-            if ((method.equals("POST") || method.equals("PUT")) && body != null && !body.isEmpty()) {
-                httpRequest.setBody(body);
+        Integer groupId = resolveGroupId(groupIdentifier);
+        if (groupId == null) {
+            uiManager.displayError("Group not found: " + groupIdentifier);
+            return;
+        }
+
+        List<ApiRequest> requests = collectionManager.getRequestsByGroupId(groupId);
+        if (requests.isEmpty()) {
+            uiManager.displayInfo("No API requests in this group");
+            return;
+        }
+
+        uiManager.displayInfo("Running " + requests.size() + " requests with concurrency " + concurrency + "...");
+
+        List<GroupRunResult> results = new ArrayList<>();
+        List<Future<GroupRunResult>> futures = new ArrayList<>();
+        ExecutorService executor = TaskExecutors.newBoundedExecutor(concurrency, "curlbaby-group");
+        long wallStart = System.nanoTime();
+        try {
+            for (ApiRequest row : requests) {
+                futures.add(executor.submit(() -> executeGroupRow(row)));
+            }
+            for (Future<GroupRunResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    uiManager.displayError("Request failed: " + e.getCause().getMessage());
+                }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            uiManager.displayWarning("Group run interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+        double wallMillis = (System.nanoTime() - wallStart) / 1_000_000.0;
 
-            uiManager.displayInfo("Executing saved request: [" + method + "] " + request.get("name"));
-            requestHandler.executeRequest(httpRequest);
+        printGroupRunSummary(results, wallMillis);
+    }
 
+    private GroupRunResult executeGroupRow(ApiRequest row) {
+        Request httpRequest = toHttpRequest(row);
+        long start = System.nanoTime();
+        try {
+            Response response = requestHandler.send(httpRequest);
+            return new GroupRunResult(row, response.getStatus(), response.getBodySize(),
+                    response.getTimings().getTotalMillis(), response.getTimings(), null);
+        } catch (Exception e) {
+            return new GroupRunResult(row, -1, 0, (System.nanoTime() - start) / 1_000_000.0, null, e.getMessage());
+        }
+    }
+
+    private void printGroupRunSummary(List<GroupRunResult> results, double wallMillis) {
+        results.sort(Comparator.comparingDouble((GroupRunResult r) -> r.latencyMillis).reversed());
+
+        System.out.println();
+        System.out.printf("  %-6s %-7s %-30s %-7s %12s %12s %10s\n",
+                "ID", "METHOD", "NAME", "STATUS", "LATENCY", "TTFB", "BYTES");
+        int failed = 0;
+        double latencySum = 0;
+        for (GroupRunResult result : results) {
+            latencySum += result.latencyMillis;
+            boolean ok = result.error == null && result.status < 400;
+            if (!ok) {
+                failed++;
+            }
+            System.out.printf("  %-6d %-7s %-30s %-7s %9.1f ms %9.1f ms %10d%s\n",
+                    result.row.id(),
+                    result.row.method().toUpperCase(),
+                    truncate(result.row.name(), 30),
+                    result.error != null ? "ERR" : String.valueOf(result.status),
+                    result.latencyMillis,
+                    result.timings != null ? result.timings.getTimeToFirstByteMillis() : 0.0,
+                    result.bytes,
+                    result.error != null ? "  " + result.error : "");
+        }
+        System.out.println();
+
+        String summary = String.format("%d requests, %d ok, %d failed in %.1f ms (sum of latencies %.1f ms)",
+                results.size(), results.size() - failed, failed, wallMillis, latencySum);
+        if (failed == 0) {
+            uiManager.displaySuccess(summary);
+        } else {
+            uiManager.displayWarning(summary);
+        }
+    }
+
+    private void benchSavedRequest(String argument) {
+        String[] tokens = argument.trim().split("\\s+");
+        Integer requestId = null;
+        int connections = 10;
+        long totalRequests = 0;
+        long durationMillis = 0;
+        double ratePerSecond = 0;
+        boolean connectionsGiven = false;
+
+        try {
+            for (int i = 0; i < tokens.length; i++) {
+                String token = tokens[i];
+                if (token.isEmpty()) {
+                    continue;
+                }
+                if (token.startsWith("-") && i + 1 >= tokens.length) {
+                    uiManager.displayError("Missing value for " + token);
+                    return;
+                }
+                switch (token) {
+                    case "-c":
+                    case "--connections":
+                        connections = Integer.parseInt(tokens[++i]);
+                        connectionsGiven = true;
+                        break;
+                    case "-r":
+                    case "--rate":
+                        ratePerSecond = BenchmarkRunner.parseRatePerSecond(tokens[++i]);
+                        break;
+                    case "-n":
+                    case "--requests":
+                        totalRequests = Long.parseLong(tokens[++i]);
+                        break;
+                    case "-d":
+                    case "--duration":
+                        durationMillis = BenchmarkRunner.parseDurationMillis(tokens[++i]);
+                        break;
+                    default:
+                        if (requestId != null || token.startsWith("-")) {
+                            uiManager.displayError("Unexpected argument: " + token);
+                            printBenchUsage();
+                            return;
+                        }
+                        requestId = Integer.parseInt(token);
+                }
+            }
         } catch (NumberFormatException e) {
-            uiManager.displayError("Invalid request ID: " + argument);
+            uiManager.displayError("Invalid number: " + e.getMessage());
+            printBenchUsage();
+            return;
+        }
+
+        if (requestId == null) {
+            printBenchUsage();
+            return;
+        }
+        if (connections < 1 || totalRequests < 0 || durationMillis < 0) {
+            uiManager.displayError("Connections must be at least 1 and counts cannot be negative");
+            return;
+        }
+        if (totalRequests > 0 && durationMillis > 0) {
+            uiManager.displayError("Use either -n <requests> or -d <duration>, not both");
+            return;
+        }
+        if (totalRequests == 0 && durationMillis == 0) {
+            durationMillis = 10_000;
+        }
+
+        ApiRequest request = collectionManager.getRequestById(requestId);
+        if (request == null) {
+            uiManager.displayError("API request not found with ID: " + requestId);
+            return;
+        }
+
+        BenchmarkRunner runner = new BenchmarkRunner(requestHandler, uiManager);
+        if (ratePerSecond > 0) {
+            // In the open model -c caps requests in flight; allow generous headroom by default
+            int maxInFlight = connectionsGiven ? connections : DEFAULT_RATE_MAX_IN_FLIGHT;
+            runner.runAtRate(toHttpRequest(request), ratePerSecond, maxInFlight, totalRequests, durationMillis);
+        } else {
+            runner.run(toHttpRequest(request), connections, totalRequests, durationMillis);
+        }
+    }
+
+    private void printBenchUsage() {
+        uiManager.displayInfo("Usage: bench <id> [-c <connections>] [-n <requests> | -d <duration>] [--rate <n>/s]");
+        uiManager.displayInfo("  e.g. bench 3 -c 20 -n 5000   or   bench 3 -c 50 -d 30s   or   bench 3 --rate 500/s -d 1m");
+    }
+
+    private Integer resolveGroupId(String identifier) {
+        try {
+            int groupId = Integer.parseInt(identifier);
+            return collectionManager.groupExists(groupId) ? groupId : null;
+        } catch (NumberFormatException e) {
+            return collectionManager.getGroupIdByName(identifier);
+        }
+    }
+
+    private static String truncate(String value, int maxLength) {
+        if (value == null) {
+            return "";
+        }
+        return value.length() <= maxLength ? value : value.substring(0, maxLength - 1) + "…";
+    }
+
+    /**
+     * Build an executable request from a saved api_requests row
+     */
+    static Request toHttpRequest(ApiRequest request) {
+        String method = request.method();
+        String url = request.url();
+        String body = request.body();
+
+        Request httpRequest = new Request(method, url);
+
+        Map<String, String> headers = httpRequest.getHeaders();
+        for (Header header : request.headers()) {
+            // Repeated names are folded into one comma-separated value
+            headers.merge(header.name(), header.value(), (first, second) -> first + ", " + second);
+        }
+
+        if ((method.equals("POST") || method.equals("PUT")) && request.bodyFile() != null) {
+            // Saved from --data-binary @file: streamed from the file on every run
+            httpRequest.setBody(RequestBody.ofFile(Paths.get(request.bodyFile())));
+        } else if ((method.equals("POST") || method.equals("PUT")) && body != null && !body.isEmpty()) {
+            httpRequest.setBody(body);
+        }
+        return httpRequest;
+    }
+
+    private static class GroupRunResult {
+
+        private final ApiRequest row;
+        private final int status;
+        private final long bytes;
+        private final double latencyMillis;
+        private final RequestTimings timings; // null when the request failed
+        private final String error;
+
+        GroupRunResult(ApiRequest row, int status, long bytes, double latencyMillis,
+                RequestTimings timings, String error) {
+            this.row = row;
+            this.status = status;
+            this.bytes = bytes;
+            this.latencyMillis = latencyMillis;
+            this.timings = timings;
+            this.error = error;
         }
     }
 }
@@ -1,27 +1,116 @@
 package com.curlbaby;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import java.io.File;
+import java.io.IOException;
 import java.sql.*;
 import java.util.*;
 
+/**
+ * Saved API groups and requests in ~/curlbaby.db.
+ *
+ * One instance, from getShared(), serves the whole process so there is a
+ * single SQLite connection. Prepared statements are cached for the life of
+ * the connection and every database method is synchronized on the instance,
+ * since the connection is shared by concurrent group runs and the daemon.
+ * Group names, ids and the group count come from an in-memory cache, so
+ * status and name lookups do not query the groups table each time.
+ */
 public class ApiCollectionManager {
 
+    private static ApiCollectionManager shared;
+
     private Map<String, List<String>> collections;
+    private final String dbPath;
     private Connection connection;
+    private boolean initialized;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+    // Group metadata cache: null until loaded, reset by our own writes and
+    // reloaded when PRAGMA data_version shows another connection committed
+    private Map<String, Integer> groupIdsByName;
+    private Set<Integer> groupIds;
+    private long groupCacheVersion;
     private static final String DB_NAME = "curlbaby.db";
+    // A request joined with its headers; select with the clauses appended by the caller
+    private static final String REQUEST_WITH_HEADERS = "SELECT r.id, r.group_id, r.name, r.method, r.url, r.body, "
+            + "r.body_file, r.description, r.created_at, h.name, h.value FROM api_requests r "
+            + "LEFT JOIN api_request_headers h ON h.request_id = r.id";
+
+    /**
+     * A saved API group.
+     */
+    public record ApiGroup(int id, String name, String description, String createdAt) {
+    }
+
+    /**
+     * One header of a saved request. A name may appear more than once.
+     */
+    public record Header(String name, String value) {
+    }
+
+    /**
+     * A saved API request, with its headers in the order they were saved.
+     * bodyFile, when set, is the file the body is streamed from instead of body.
+     */
+    public record ApiRequest(int id, int groupId, String name, String method, String url,
+            List<Header> headers, String body, String bodyFile, String description, String createdAt) {
+    }
 
     public ApiCollectionManager() {
+        this(System.getProperty("user.home") + File.separator + DB_NAME);
+    }
+
+    /**
+     * A manager for the database at dbPath instead of ~/curlbaby.db, e.g. a
+     * scratch database for benchmarks.
+     */
+    ApiCollectionManager(String dbPath) {
         this.collections = new HashMap<>();
-        initializeDatabase();
+        this.dbPath = dbPath;
+    }
+
+    /**
+     * The process-wide instance.
+     */
+    public static synchronized ApiCollectionManager getShared() {
+        if (shared == null) {
+            shared = new ApiCollectionManager();
+        }
+        return shared;
+    }
+
+    /**
+     * The database connection, opened on first use so commands that never
+     * touch collections do not pay for SQLite. Null if it could not be opened.
+     */
+    private synchronized Connection connection() {
+        if (!initialized) {
+            initialized = true;
+            initializeDatabase();
+        }
+        return connection;
+    }
+
+    /**
+     * A prepared statement for sql, reused across calls. Callers must hold the
+     * instance lock and must not close it.
+     */
+    private PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null) {
+            statement = connection.prepareStatement(sql);
+            statements.put(sql, statement);
+        }
+        return statement;
     }
 
     private void initializeDatabase() {
         try {
-            // Create database file in user directory if it doesn't exist
-            String userHome = System.getProperty("user.home");
-            String dbPath = userHome + File.separator + DB_NAME;
-
+            // Creates the database file if it doesn't exist
             connection = DriverManager.getConnection("jdbc:sqlite:" + dbPath);
+            configureConnection();
             createTables();
         } catch (SQLException e) {
             System.err.println("Error initializing database: " + e.getMessage());
@@ -29,6 +118,20 @@ public class ApiCollectionManager {
         }
     }
 
+    /**
+     * WAL lets readers in other processes (e.g. a one-shot call while the
+     * daemon runs) proceed during writes, and with WAL synchronous=NORMAL is
+     * still crash-safe while avoiding an fsync on every commit.
+     */
+    private void configureConnection() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA journal_mode = WAL");
+            stmt.execute("PRAGMA synchronous = NORMAL");
+            stmt.execute("PRAGMA foreign_keys = ON");
+            stmt.execute("PRAGMA busy_timeout = 5000");
+        }
+    }
+
     private void createTables() throws SQLException {
         String createGroupsTable = """
             CREATE TABLE IF NOT EXISTS api_groups (
@@ -48,18 +151,123 @@ public class ApiCollectionManager {
                 url TEXT NOT NULL,
                 headers TEXT,
                 body TEXT,
+                body_file TEXT,
                 description TEXT,
                 created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
                 FOREIGN KEY (group_id) REFERENCES api_groups(id) ON DELETE CASCADE
             )
         """;
 
+        // Keyed by (request_id, position) so a request's headers are stored
+        // together, in order, and read back with a single index range scan
+        String createHeadersTable = """
+            CREATE TABLE IF NOT EXISTS api_request_headers (
+                request_id INTEGER NOT NULL,
+                position INTEGER NOT NULL,
+                name TEXT NOT NULL,
+                value TEXT NOT NULL,
+                PRIMARY KEY (request_id, position),
+                FOREIGN KEY (request_id) REFERENCES api_requests(id) ON DELETE CASCADE
+            ) WITHOUT ROWID
+        """;
+
         try (Statement stmt = connection.createStatement()) {
             stmt.execute(createGroupsTable);
             stmt.execute(createRequestsTable);
+            // Covers both the group_id filter and the ORDER BY name of group listings
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_api_requests_group_name ON api_requests(group_id, name)");
+            stmt.execute(createHeadersTable);
+        }
+        migrateLegacyHeaders();
+        addBodyFileColumn();
+    }
+
+    /**
+     * Databases created before file bodies were saved lack api_requests.body_file.
+     */
+    private void addBodyFileColumn() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(api_requests)")) {
+                while (rs.next()) {
+                    if (rs.getString("name").equals("body_file")) {
+                        return;
+                    }
+                }
+            }
+            stmt.execute("ALTER TABLE api_requests ADD COLUMN body_file TEXT");
         }
     }
 
+    /**
+     * Move headers saved by older versions, as a JSON string in
+     * api_requests.headers, into api_request_headers. Runs once: migrated
+     * rows have the column cleared and new rows never set it.
+     */
+    private void migrateLegacyHeaders() throws SQLException {
+        Map<Integer, List<Header>> legacy = new LinkedHashMap<>();
+        try (Statement stmt = connection.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT id, headers FROM api_requests WHERE headers IS NOT NULL")) {
+            while (rs.next()) {
+                legacy.put(rs.getInt(1), parseLegacyHeaders(rs.getString(2)));
+            }
+        }
+        if (legacy.isEmpty()) {
+            return;
+        }
+
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT OR REPLACE INTO api_request_headers (request_id, position, name, value) VALUES (?, ?, ?, ?)");
+                PreparedStatement clear = connection.prepareStatement(
+                        "UPDATE api_requests SET headers = NULL WHERE id = ?")) {
+            for (Map.Entry<Integer, List<Header>> entry : legacy.entrySet()) {
+                addHeaderBatch(insert, entry.getKey(), entry.getValue());
+                clear.setInt(1, entry.getKey());
+                clear.addBatch();
+            }
+            insert.executeBatch();
+            clear.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Headers from the old hand-built JSON. Values were not escaped, so when
+     * the string is not valid JSON fall back to the old comma splitting.
+     */
+    private static List<Header> parseLegacyHeaders(String headersJson) {
+        List<Header> headers = new ArrayList<>();
+        if (headersJson == null || headersJson.isBlank() || headersJson.equals("{}")) {
+            return headers;
+        }
+
+        try (JsonParser parser = new JsonFactory().createParser(headersJson)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    parser.nextToken();
+                    headers.add(new Header(name, parser.getValueAsString("")));
+                }
+                return headers;
+            }
+        } catch (IOException e) {
+            headers.clear();
+        }
+
+        for (String pair : headersJson.replaceAll("[{}\"]", "").split(",")) {
+            String[] keyValue = pair.split(":", 2);
+            if (keyValue.length == 2 && !keyValue[0].isBlank()) {
+                headers.add(new Header(keyValue[0].trim(), keyValue[1].trim()));
+            }
+        }
+        return headers;
+    }
+
     // Legacy collection methods (for backward compatibility)
     public void addCollection(String name) {
         collections.put(name, new ArrayList<>());
@@ -98,7 +306,7 @@ public class ApiCollectionManager {
     }
 
     public int getCollectionCount() {
-        return collections.size() + getAllGroups().size();
+        return collections.size() + countGroups();
     }
 
     public void addRequestToCollection(String collectionName, String request) {
@@ -109,16 +317,19 @@ public class ApiCollectionManager {
     }
 
     // API Group methods
-    public boolean createGroup(String name, String description) {
+    public synchronized boolean createGroup(String name, String description) {
+        Connection connection = connection();
         if (connection == null) {
             return false;
         }
 
         String sql = "INSERT INTO api_groups (name, description) VALUES (?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try {
+            PreparedStatement pstmt = prepare(connection, sql);
             pstmt.setString(1, name);
             pstmt.setString(2, description);
             pstmt.executeUpdate();
+            groupIdsByName = null;
             return true;
         } catch (SQLException e) {
             System.err.println("Error creating group: " + e.getMessage());
@@ -126,22 +337,17 @@ public class ApiCollectionManager {
         }
     }
 
-    public List<Map<String, Object>> getAllGroups() {
-        List<Map<String, Object>> groups = new ArrayList<>();
+    public synchronized List<ApiGroup> getAllGroups() {
+        List<ApiGroup> groups = new ArrayList<>();
+        Connection connection = connection();
         if (connection == null) {
             return groups;
         }
 
         String sql = "SELECT id, name, description, created_at FROM api_groups ORDER BY name";
-        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
-
+        try (ResultSet rs = prepare(connection, sql).executeQuery()) {
             while (rs.next()) {
-                Map<String, Object> group = new HashMap<>();
-                group.put("id", rs.getInt("id"));
-                group.put("name", rs.getString("name"));
-                group.put("description", rs.getString("description"));
-                group.put("created_at", rs.getString("created_at"));
-                groups.add(group);
+                groups.add(readGroup(rs));
             }
         } catch (SQLException e) {
             System.err.println("Error fetching groups: " + e.getMessage());
@@ -150,23 +356,20 @@ public class ApiCollectionManager {
         return groups;
     }
 
-    public Map<String, Object> getGroupById(int id) {
+    public synchronized ApiGroup getGroupById(int id) {
+        Connection connection = connection();
         if (connection == null) {
             return null;
         }
 
         String sql = "SELECT id, name, description, created_at FROM api_groups WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try {
+            PreparedStatement pstmt = prepare(connection, sql);
             pstmt.setInt(1, id);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                Map<String, Object> group = new HashMap<>();
-                group.put("id", rs.getInt("id"));
-                group.put("name", rs.getString("name"));
-                group.put("description", rs.getString("description"));
-                group.put("created_at", rs.getString("created_at"));
-                return group;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return readGroup(rs);
+                }
             }
         } catch (SQLException e) {
             System.err.println("Error fetching group: " + e.getMessage());
@@ -175,36 +378,91 @@ public class ApiCollectionManager {
         return null;
     }
 
-    public Integer getGroupIdByName(String name) {
+    public synchronized Integer getGroupIdByName(String name) {
+        Connection connection = connection();
         if (connection == null) {
             return null;
         }
 
-        String sql = "SELECT id FROM api_groups WHERE name = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, name);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                return rs.getInt("id");
-            }
+        try {
+            loadGroupCache(connection);
+            return groupIdsByName.get(name);
         } catch (SQLException e) {
             System.err.println("Error fetching group ID: " + e.getMessage());
+            return null;
         }
+    }
 
-        return null;
+    public synchronized boolean groupExists(int id) {
+        Connection connection = connection();
+        if (connection == null) {
+            return false;
+        }
+
+        try {
+            loadGroupCache(connection);
+            return groupIds.contains(id);
+        } catch (SQLException e) {
+            System.err.println("Error fetching group: " + e.getMessage());
+            return false;
+        }
     }
 
-    public boolean renameGroup(int id, String newName) {
+    public synchronized int countGroups() {
+        Connection connection = connection();
+        if (connection == null) {
+            return 0;
+        }
+
+        try {
+            loadGroupCache(connection);
+            return groupIds.size();
+        } catch (SQLException e) {
+            System.err.println("Error counting groups: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Make sure the group cache reflects the database. data_version only
+     * changes for commits made through other connections, which is why our
+     * own writes reset the cache themselves.
+     */
+    private void loadGroupCache(Connection connection) throws SQLException {
+        long version;
+        try (ResultSet rs = prepare(connection, "PRAGMA data_version").executeQuery()) {
+            version = rs.next() ? rs.getLong(1) : 0;
+        }
+        if (groupIdsByName != null && version == groupCacheVersion) {
+            return;
+        }
+
+        Map<String, Integer> byName = new HashMap<>();
+        Set<Integer> ids = new HashSet<>();
+        try (ResultSet rs = prepare(connection, "SELECT id, name FROM api_groups").executeQuery()) {
+            while (rs.next()) {
+                byName.put(rs.getString(2), rs.getInt(1));
+                ids.add(rs.getInt(1));
+            }
+        }
+        groupIdsByName = byName;
+        groupIds = ids;
+        groupCacheVersion = version;
+    }
+
+    public synchronized boolean renameGroup(int id, String newName) {
+        Connection connection = connection();
         if (connection == null) {
             return false;
         }
 
         String sql = "UPDATE api_groups SET name = ? WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try {
+            PreparedStatement pstmt = prepare(connection, sql);
             pstmt.setString(1, newName);
             pstmt.setInt(2, id);
             int rowsAffected = pstmt.executeUpdate();
+            groupIdsByName = null;
             return rowsAffected > 0;
         } catch (SQLException e) {
             System.err.println("Error renaming group: " + e.getMessage());
@@ -212,15 +470,18 @@ public class ApiCollectionManager {
         }
     }
 
-    public boolean deleteGroup(int id) {
+    public synchronized boolean deleteGroup(int id) {
+        Connection connection = connection();
         if (connection == null) {
             return false;
         }
 
         String sql = "DELETE FROM api_groups WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try {
+            PreparedStatement pstmt = prepare(connection, sql);
             pstmt.setInt(1, id);
             int rowsAffected = pstmt.executeUpdate();
+            groupIdsByName = null;
             return rowsAffected > 0;
         } catch (SQLException e) {
             System.err.println("Error deleting group: " + e.getMessage());
@@ -230,51 +491,79 @@ public class ApiCollectionManager {
 
     // API Request methods
     public boolean saveRequest(int groupId, String name, String method, String url,
-            String headers, String body, String description) {
+            Map<String, String> headers, String body, String description) {
+        return saveRequest(groupId, name, method, url, headers, body, null, description);
+    }
+
+    /**
+     * Save a request whose body is either the text body or, when bodyFile is
+     * set, the contents of that file at the time the request is run.
+     */
+    public synchronized boolean saveRequest(int groupId, String name, String method, String url,
+            Map<String, String> headers, String body, String bodyFile, String description) {
+        Connection connection = connection();
         if (connection == null) {
             return false;
         }
 
-        String sql = "INSERT INTO api_requests (group_id, name, method, url, headers, body, description) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, groupId);
-            pstmt.setString(2, name);
-            pstmt.setString(3, method);
-            pstmt.setString(4, url);
-            pstmt.setString(5, headers);
-            pstmt.setString(6, body);
-            pstmt.setString(7, description);
-            pstmt.executeUpdate();
-            return true;
+        String sql = "INSERT INTO api_requests (group_id, name, method, url, body, body_file, description) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try {
+            connection.setAutoCommit(false);
+            try {
+                PreparedStatement pstmt = prepare(connection, sql);
+                pstmt.setInt(1, groupId);
+                pstmt.setString(2, name);
+                pstmt.setString(3, method);
+                pstmt.setString(4, url);
+                pstmt.setString(5, body);
+                pstmt.setString(6, bodyFile);
+                pstmt.setString(7, description);
+                pstmt.executeUpdate();
+
+                int requestId;
+                try (ResultSet rs = prepare(connection, "SELECT last_insert_rowid()").executeQuery()) {
+                    rs.next();
+                    requestId = rs.getInt(1);
+                }
+
+                if (headers != null && !headers.isEmpty()) {
+                    List<Header> rows = new ArrayList<>(headers.size());
+                    for (Map.Entry<String, String> header : headers.entrySet()) {
+                        rows.add(new Header(header.getKey(), header.getValue()));
+                    }
+                    PreparedStatement insertHeaders = prepare(connection,
+                            "INSERT INTO api_request_headers (request_id, position, name, value) VALUES (?, ?, ?, ?)");
+                    addHeaderBatch(insertHeaders, requestId, rows);
+                    insertHeaders.executeBatch();
+                }
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
         } catch (SQLException e) {
             System.err.println("Error saving request: " + e.getMessage());
             return false;
         }
     }
 
-    public List<Map<String, Object>> getRequestsByGroupId(int groupId) {
-        List<Map<String, Object>> requests = new ArrayList<>();
+    public synchronized List<ApiRequest> getRequestsByGroupId(int groupId) {
+        List<ApiRequest> requests = new ArrayList<>();
+        Connection connection = connection();
         if (connection == null) {
             return requests;
         }
 
-        String sql = "SELECT id, name, method, url, headers, body, description, created_at FROM api_requests WHERE group_id = ? ORDER BY name";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        String sql = REQUEST_WITH_HEADERS + " WHERE r.group_id = ? ORDER BY r.name, r.id, h.position";
+        try {
+            PreparedStatement pstmt = prepare(connection, sql);
             pstmt.setInt(1, groupId);
-            ResultSet rs = pstmt.executeQuery();
-
-            while (rs.next()) {
-                Map<String, Object> request = new HashMap<>();
-                request.put("id", rs.getInt("id"));
-                request.put("group_id", groupId);
-                request.put("name", rs.getString("name"));
-                request.put("method", rs.getString("method"));
-                request.put("url", rs.getString("url"));
-                request.put("headers", rs.getString("headers"));
-                request.put("body", rs.getString("body"));
-                request.put("description", rs.getString("description"));
-                request.put("created_at", rs.getString("created_at"));
-                requests.add(request);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                readRequests(rs, requests);
             }
         } catch (SQLException e) {
             System.err.println("Error fetching requests: " + e.getMessage());
@@ -283,29 +572,21 @@ public class ApiCollectionManager {
         return requests;
     }
 
-    public Map<String, Object> getRequestById(int id) {
+    public synchronized ApiRequest getRequestById(int id) {
+        Connection connection = connection();
         if (connection == null) {
             return null;
         }
 
-        String sql = "SELECT id, group_id, name, method, url, headers, body, description, created_at FROM api_requests WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        String sql = REQUEST_WITH_HEADERS + " WHERE r.id = ? ORDER BY h.position";
+        try {
+            PreparedStatement pstmt = prepare(connection, sql);
             pstmt.setInt(1, id);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                Map<String, Object> request = new HashMap<>();
-                request.put("id", rs.getInt("id"));
-                request.put("group_id", rs.getInt("group_id"));
-                request.put("name", rs.getString("name"));
-                request.put("method", rs.getString("method"));
-                request.put("url", rs.getString("url"));
-                request.put("headers", rs.getString("headers"));
-                request.put("body", rs.getString("body"));
-                request.put("description", rs.getString("description"));
-                request.put("created_at", rs.getString("created_at"));
-                return request;
+            List<ApiRequest> requests = new ArrayList<>(1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                readRequests(rs, requests);
             }
+            return requests.isEmpty() ? null : requests.get(0);
         } catch (SQLException e) {
             System.err.println("Error fetching request: " + e.getMessage());
         }
@@ -313,13 +594,15 @@ public class ApiCollectionManager {
         return null;
     }
 
-    public boolean deleteRequest(int id) {
+    public synchronized boolean deleteRequest(int id) {
+        Connection connection = connection();
         if (connection == null) {
             return false;
         }
 
         String sql = "DELETE FROM api_requests WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try {
+            PreparedStatement pstmt = prepare(connection, sql);
             pstmt.setInt(1, id);
             int rowsAffected = pstmt.executeUpdate();
             return rowsAffected > 0;
@@ -329,8 +612,74 @@ public class ApiCollectionManager {
         }
     }
 
+    // Columns are read by position, in the order of the SELECTs above
+    private static ApiGroup readGroup(ResultSet rs) throws SQLException {
+        return new ApiGroup(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4));
+    }
+
+    /**
+     * Fold the rows of a REQUEST_WITH_HEADERS query, one per header (or one
+     * with null header columns for a request without headers), into requests.
+     * Rows of the same request must be adjacent.
+     */
+    private static void readRequests(ResultSet rs, List<ApiRequest> requests) throws SQLException {
+        int currentId = -1;
+        int groupId = 0;
+        String name = null, method = null, url = null, body = null, bodyFile = null, description = null;
+        String createdAt = null;
+        List<Header> headers = null;
+
+        while (rs.next()) {
+            int id = rs.getInt(1);
+            if (headers == null || id != currentId) {
+                if (headers != null) {
+                    requests.add(new ApiRequest(currentId, groupId, name, method, url,
+                            List.copyOf(headers), body, bodyFile, description, createdAt));
+                }
+                currentId = id;
+                groupId = rs.getInt(2);
+                name = rs.getString(3);
+                method = rs.getString(4);
+                url = rs.getString(5);
+                body = rs.getString(6);
+                bodyFile = rs.getString(7);
+                description = rs.getString(8);
+                createdAt = rs.getString(9);
+                headers = new ArrayList<>();
+            }
+            String headerName = rs.getString(10);
+            if (headerName != null) {
+                headers.add(new Header(headerName, rs.getString(11)));
+            }
+        }
+        if (headers != null) {
+            requests.add(new ApiRequest(currentId, groupId, name, method, url,
+                    List.copyOf(headers), body, bodyFile, description, createdAt));
+        }
+    }
+
+    private static void addHeaderBatch(PreparedStatement insert, int requestId, List<Header> headers)
+            throws SQLException {
+        int position = 0;
+        for (Header header : headers) {
+            insert.setInt(1, requestId);
+            insert.setInt(2, position++);
+            insert.setString(3, header.name());
+            insert.setString(4, header.value());
+            insert.addBatch();
+        }
+    }
+
     // Cleanup method
-    public void close() {
+    public synchronized void close() {
+        for (PreparedStatement statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                // The connection is closing anyway
+            }
+        }
+        statements.clear();
         if (connection != null) {
             try {
                 connection.close();
@@ -0,0 +1,268 @@
+package com.curlbaby;
+
+import com.curlbaby.HttpRequestHandler.Request;
+import com.curlbaby.HttpRequestHandler.Response;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a JSONL file of requests behind the 'batch run' command.
+ *
+ * Each input line is one request, either
+ * {"method": "POST", "url": "...", "headers": {...}, "body": ...} or
+ * {"curl": "curl -X POST ..."}. The file is read as a stream and a semaphore
+ * stops reading while {@code concurrency} requests are in flight, so memory
+ * stays flat no matter how many lines the file has. Response bodies are
+ * hashed while they stream in and never buffered. One JSONL result is written
+ * per request as soon as it completes, in completion order; the "line" field
+ * ties it back to the input.
+ */
+public class BatchRunner {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final JsonFactory JSON_FACTORY = OBJECT_MAPPER.getFactory();
+
+    private final HttpRequestHandler requestHandler;
+    private final UIManager uiManager;
+
+    public BatchRunner(HttpRequestHandler requestHandler, UIManager uiManager) {
+        this.requestHandler = requestHandler;
+        this.uiManager = uiManager;
+    }
+
+    /**
+     * Run every request in inputFile. Results go to outputFile, or to the
+     * terminal when it is null.
+     */
+    public void run(String inputFile, int concurrency, String outputFile) {
+        OutputStream out = null;
+        try (BufferedReader reader = Files.newBufferedReader(WorkingDirectory.resolve(inputFile), StandardCharsets.UTF_8)) {
+            out = outputFile != null ? Files.newOutputStream(WorkingDirectory.resolve(outputFile)) : System.out;
+            run(reader, concurrency, out, outputFile == null);
+        } catch (IOException e) {
+            uiManager.displayError("Batch failed: " + e.getMessage());
+        } finally {
+            if (out != null && out != System.out) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    uiManager.displayError("Error closing " + outputFile + ": " + e.getMessage());
+                }
+            }
+        }
+        if (outputFile != null) {
+            uiManager.displayInfo("Results written to " + outputFile);
+        }
+    }
+
+    private void run(BufferedReader reader, int concurrency, OutputStream out, boolean flushEachResult)
+            throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        JsonGenerator generator = JSON_FACTORY.createGenerator(writer);
+        generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        Semaphore inFlight = new Semaphore(concurrency);
+        ExecutorService executor = TaskExecutors.newBoundedExecutor(concurrency, "curlbaby-batch");
+        long start = System.nanoTime();
+        long lineNumber = 0;
+
+        uiManager.displayInfo("Running batch with concurrency " + concurrency + "...");
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                long currentLine = lineNumber;
+                Request request;
+                try {
+                    request = parseLine(line);
+                } catch (IOException | IllegalArgumentException e) {
+                    failed.incrementAndGet();
+                    writeResult(generator, flushEachResult, currentLine, null, null, null,
+                            "Invalid request: " + e.getMessage());
+                    continue;
+                }
+
+                // Backpressure: stop reading until a slot frees up
+                inFlight.acquire();
+                executor.execute(() -> {
+                    try {
+                        BodyHash hash = new BodyHash();
+                        Response response = requestHandler.sendStreaming(request, hash);
+                        if (response.getStatus() < 400) {
+                            succeeded.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                        writeResult(generator, flushEachResult, currentLine, request, response, hash.hex(), null);
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                        writeResult(generator, flushEachResult, currentLine, request, null, null,
+                                e.getClass().getSimpleName() + ": " + e.getMessage());
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+
+            // Every permit back means every request has finished
+            inFlight.acquire(concurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            uiManager.displayWarning("Batch interrupted");
+        } finally {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (generator) {
+                generator.flush();
+                if (succeeded.get() + failed.get() > 0) {
+                    writer.write('\n');
+                }
+                writer.flush();
+            }
+        }
+
+        double elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        long total = succeeded.get() + failed.get();
+        String summary = String.format("%d requests, %d ok, %d failed in %.2fs (%.1f req/s)",
+                total, succeeded.get(), failed.get(), elapsedSeconds, elapsedSeconds > 0 ? total / elapsedSeconds : 0);
+        if (failed.get() == 0) {
+            uiManager.displaySuccess(summary);
+        } else {
+            uiManager.displayWarning(summary);
+        }
+    }
+
+    /**
+     * Turn one JSONL line into a Request.
+     */
+    static Request parseLine(String line) throws IOException {
+        JsonNode node = OBJECT_MAPPER.readTree(line);
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("expected a JSON object");
+        }
+
+        JsonNode curl = node.get("curl");
+        if (curl != null) {
+            return CurlCommand.parse(curl.asText()).getRequest();
+        }
+
+        JsonNode url = node.get("url");
+        if (url == null || url.asText().isEmpty()) {
+            throw new IllegalArgumentException("missing \"url\"");
+        }
+        JsonNode method = node.get("method");
+        Request request = new Request(method != null ? method.asText().toUpperCase() : "GET", url.asText());
+
+        JsonNode headers = node.get("headers");
+        if (headers != null && headers.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = headers.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> header = fields.next();
+                request.addHeader(header.getKey(), header.getValue().asText());
+            }
+        }
+
+        JsonNode body = node.get("body");
+        if (body != null && !body.isNull()) {
+            // Strings are sent as-is; objects and arrays as compact JSON
+            request.setBody(body.isTextual() ? body.asText() : OBJECT_MAPPER.writeValueAsString(body));
+        }
+        return request;
+    }
+
+    private void writeResult(JsonGenerator generator, boolean flush, long line, Request request,
+            Response response, String bodyHash, String error) {
+        synchronized (generator) {
+            try {
+                generator.writeStartObject();
+                generator.writeNumberField("line", line);
+                if (request != null) {
+                    generator.writeStringField("method", request.getMethod());
+                    generator.writeStringField("url", request.getUrl());
+                }
+                if (response != null) {
+                    generator.writeNumberField("status", response.getStatus());
+                    generator.writeNumberField("bytes", response.getBodySize());
+                    generator.writeStringField("sha256", bodyHash);
+                    generator.writeObjectFieldStart("timings_ms");
+                    for (Map.Entry<String, Double> phase : response.getTimings().toMap().entrySet()) {
+                        generator.writeNumberField(phase.getKey(), Math.round(phase.getValue() * 1000) / 1000.0);
+                    }
+                    generator.writeEndObject();
+                }
+                if (error != null) {
+                    generator.writeStringField("error", error);
+                }
+                generator.writeEndObject();
+                if (flush) {
+                    generator.flush();
+                }
+            } catch (IOException e) {
+                uiManager.displayError("Error writing result for line " + line + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Body sink that computes a SHA-256 of the body as it streams past.
+     */
+    private static class BodyHash implements HttpRequestHandler.BodySink {
+
+        private final MessageDigest digest;
+
+        BodyHash() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+
+        @Override
+        public long consume(Response head, InputStream body) throws IOException {
+            byte[] buffer = new byte[8192];
+            long total = 0;
+            int n;
+            while ((n = body.read(buffer)) != -1) {
+                digest.update(buffer, 0, n);
+                total += n;
+            }
+            return total;
+        }
+
+        String hex() {
+            return HexFormat.of().formatHex(digest.digest());
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.curlbaby;
+
+import com.curlbaby.HttpRequestHandler.Request;
+import com.curlbaby.HttpRequestHandler.Response;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load generator behind the 'bench' command.
+ *
+ * The default mode is a closed loop: each connection is a worker that sends
+ * the request, waits for the full response and immediately sends the next one
+ * (like wrk or ab). With a target rate the generator switches to an open
+ * model: requests are issued on a fixed schedule no matter how slowly the
+ * server answers, and latency is measured from the time each request was
+ * supposed to go out, so server stalls are not hidden by coordinated omission.
+ */
+public class BenchmarkRunner {
+
+    // Park until this close to the send time, then spin for sub-microsecond accuracy
+    private static final long SPIN_THRESHOLD_NANOS = 100_000;
+    // How long requests still in flight may take to finish once sending stops
+    private static final long DRAIN_TIMEOUT_MILLIS = 60_000;
+
+    private final HttpRequestHandler requestHandler;
+    private final UIManager uiManager;
+
+    public BenchmarkRunner(HttpRequestHandler requestHandler, UIManager uiManager) {
+        this.requestHandler = requestHandler;
+        this.uiManager = uiManager;
+    }
+
+    /**
+     * Run a closed-loop benchmark. Stops after totalRequests when it is
+     * positive, otherwise after durationMillis.
+     */
+    public void run(Request request, int connections, long totalRequests, long durationMillis) {
+        // Resolve the scheme once so workers only ever read the shared request
+        requestHandler.normalizeUrl(request);
+
+        String budget = totalRequests > 0 ? totalRequests + " requests" : formatDuration(durationMillis);
+        uiManager.displayInfo("Benchmarking [" + request.getMethod() + "] " + request.getUrl()
+                + " with " + connections + " connections for " + budget + " ("
+                + requestHandler.getTransport().getName() + ")");
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        PhaseTotals phases = new PhaseTotals();
+        Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+        AtomicLong issued = new AtomicLong();
+        LongAdder bytesRead = new LongAdder();
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+
+        ExecutorService executor = TaskExecutors.newBoundedExecutor(connections, "curlbaby-bench");
+        try {
+            for (int i = 0; i < connections; i++) {
+                executor.execute(() -> {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        if (totalRequests > 0 ? issued.incrementAndGet() > totalRequests : System.nanoTime() >= deadline) {
+                            return;
+                        }
+                        long sent = System.nanoTime();
+                        try {
+                            Response response = requestHandler.send(request);
+                            histogram.recordNanos(System.nanoTime() - sent);
+                            phases.record(response.getTimings());
+                            bytesRead.add(response.getBodySize());
+                            if (response.getStatus() >= 400) {
+                                countError(errors, "HTTP " + response.getStatus());
+                            }
+                        } catch (Exception e) {
+                            histogram.recordNanos(System.nanoTime() - sent);
+                            countError(errors, e.getClass().getSimpleName());
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            long waitMillis = totalRequests > 0 ? Long.MAX_VALUE : durationMillis + DRAIN_TIMEOUT_MILLIS;
+            if (!executor.awaitTermination(waitMillis, TimeUnit.MILLISECONDS)) {
+                uiManager.displayWarning("Some requests were still running after the benchmark ended");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            uiManager.displayWarning("Benchmark interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        double elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        printReport("Latency distribution (ms):", histogram, phases, errors, bytesRead.sum(), elapsedSeconds);
+    }
+
+    /**
+     * Run an open-model benchmark at a constant arrival rate. Stops after
+     * totalRequests when it is positive, otherwise after durationMillis.
+     * maxInFlight bounds concurrent requests; when it is reached new requests
+     * queue, and the wait counts towards their latency.
+     */
+    public void runAtRate(Request request, double ratePerSecond, int maxInFlight,
+            long totalRequests, long durationMillis) {
+        requestHandler.normalizeUrl(request);
+
+        String budget = totalRequests > 0 ? totalRequests + " requests" : formatDuration(durationMillis);
+        uiManager.displayInfo(String.format("Benchmarking [%s] %s at %.0f req/s for %s (max %d in flight, %s)",
+                request.getMethod(), request.getUrl(), ratePerSecond, budget, maxInFlight,
+                requestHandler.getTransport().getName()));
+
+        LatencyHistogram correctedLatency = new LatencyHistogram();
+        LatencyHistogram serviceTime = new LatencyHistogram();
+        LatencyHistogram schedulerLag = new LatencyHistogram();
+        PhaseTotals phases = new PhaseTotals();
+        Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+        LongAdder bytesRead = new LongAdder();
+
+        double intervalNanos = 1_000_000_000.0 / ratePerSecond;
+        long durationNanos = TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        long issued = 0;
+
+        ExecutorService executor = TaskExecutors.newBoundedExecutor(maxInFlight, "curlbaby-bench");
+        long start = System.nanoTime();
+        try {
+            for (long i = 0; totalRequests <= 0 || i < totalRequests; i++) {
+                // Derive each send time from the start so rounding never accumulates
+                long offset = (long) (i * intervalNanos);
+                if (totalRequests <= 0 && offset >= durationNanos) {
+                    break;
+                }
+                long intended = start + offset;
+                waitUntil(intended);
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                schedulerLag.recordNanos(System.nanoTime() - intended);
+                issued++;
+
+                executor.execute(() -> {
+                    long sent = System.nanoTime();
+                    try {
+                        Response response = requestHandler.send(request);
+                        long done = System.nanoTime();
+                        correctedLatency.recordNanos(done - intended);
+                        serviceTime.recordNanos(done - sent);
+                        phases.record(response.getTimings());
+                        bytesRead.add(response.getBodySize());
+                        if (response.getStatus() >= 400) {
+                            countError(errors, "HTTP " + response.getStatus());
+                        }
+                    } catch (Exception e) {
+                        long done = System.nanoTime();
+                        correctedLatency.recordNanos(done - intended);
+                        serviceTime.recordNanos(done - sent);
+                        countError(errors, e.getClass().getSimpleName());
+                    }
+                });
+            }
+            long sendingNanos = System.nanoTime() - start;
+
+            executor.shutdown();
+            if (!executor.awaitTermination(DRAIN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                uiManager.displayWarning("Some requests were still running after the benchmark ended");
+            }
+
+            double sendingSeconds = sendingNanos / 1_000_000_000.0;
+            System.out.println();
+            System.out.printf("  Target rate: %.2f req/s, achieved send rate: %.2f req/s (%d sent)\n",
+                    ratePerSecond, sendingSeconds > 0 ? issued / sendingSeconds : 0, issued);
+            System.out.printf("  Scheduler lag: p99 %.3f ms, max %.3f ms\n",
+                    schedulerLag.getValueAtPercentile(99) / 1000.0, schedulerLag.getMaxMicros() / 1000.0);
+            System.out.println();
+            System.out.println("  Service time, from actual send (uncorrected, ms):");
+            System.out.printf("    p50 %.2f   p99 %.2f   max %.2f\n",
+                    serviceTime.getValueAtPercentile(50) / 1000.0,
+                    serviceTime.getValueAtPercentile(99) / 1000.0,
+                    serviceTime.getMaxMicros() / 1000.0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            uiManager.displayWarning("Benchmark interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        double elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        printReport("Response time from intended send, corrected for coordinated omission (ms):",
+                correctedLatency, phases, errors, bytesRead.sum(), elapsedSeconds);
+    }
+
+    /**
+     * Sleep until the given System.nanoTime() value with low jitter: park for
+     * the bulk of the wait, then spin through the last stretch where the OS
+     * scheduler's wake-up granularity would otherwise make us late.
+     */
+    static void waitUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > SPIN_THRESHOLD_NANOS) {
+            LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+        while (System.nanoTime() < deadlineNanos) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Parse a rate such as "5000/s", "300/m" or a bare number per second.
+     */
+    public static double parseRatePerSecond(String value) {
+        String trimmed = value.trim().toLowerCase();
+        double divisor = 1;
+        int slash = trimmed.indexOf('/');
+        if (slash >= 0) {
+            String unit = trimmed.substring(slash + 1);
+            trimmed = trimmed.substring(0, slash);
+            switch (unit) {
+                case "s":
+                case "sec":
+                    break;
+                case "m":
+                case "min":
+                    divisor = 60;
+                    break;
+                case "h":
+                    divisor = 3600;
+                    break;
+                default:
+                    throw new NumberFormatException("Unknown rate unit: " + unit);
+            }
+        }
+        double rate = Double.parseDouble(trimmed) / divisor;
+        if (rate <= 0 || Double.isNaN(rate) || Double.isInfinite(rate)) {
+            throw new NumberFormatException("Rate must be positive: " + value);
+        }
+        return rate;
+    }
+
+    void printReport(String title, LatencyHistogram histogram, PhaseTotals phases,
+            Map<String, LongAdder> errors, long bytes, double elapsedSeconds) {
+        long completed = histogram.getTotalCount();
+
+        System.out.println();
+        System.out.println("  " + title);
+        System.out.printf("    %-8s %10.2f\n", "min", histogram.getMinMicros() / 1000.0);
+        System.out.printf("    %-8s %10.2f\n", "mean", histogram.getMeanMicros() / 1000.0);
+        System.out.printf("    %-8s %10.2f\n", "p50", histogram.getValueAtPercentile(50) / 1000.0);
+        System.out.printf("    %-8s %10.2f\n", "p90", histogram.getValueAtPercentile(90) / 1000.0);
+        System.out.printf("    %-8s %10.2f\n", "p99", histogram.getValueAtPercentile(99) / 1000.0);
+        System.out.printf("    %-8s %10.2f\n", "p99.9", histogram.getValueAtPercentile(99.9) / 1000.0);
+        System.out.printf("    %-8s %10.2f\n", "max", histogram.getMaxMicros() / 1000.0);
+        phases.print();
+        System.out.println();
+        System.out.printf("  %d requests in %.2fs, %s read\n", completed, elapsedSeconds, formatBytes(bytes));
+        System.out.printf("  Requests/sec: %.2f\n", elapsedSeconds > 0 ? completed / elapsedSeconds : 0);
+        System.out.printf("  Transfer/sec: %s\n", formatBytes(elapsedSeconds > 0 ? (long) (bytes / elapsedSeconds) : 0));
+
+        if (errors.isEmpty()) {
+            uiManager.displaySuccess("No errors");
+        } else {
+            long errorCount = 0;
+            for (LongAdder count : errors.values()) {
+                errorCount += count.sum();
+            }
+            uiManager.displayWarning(errorCount + " errors:");
+            for (Map.Entry<String, LongAdder> error : new TreeMap<>(errors).entrySet()) {
+                System.out.printf("    %-28s %d\n", error.getKey(), error.getValue().sum());
+            }
+        }
+    }
+
+    /**
+     * Sums the per-request phase timings so the report can show where the
+     * average request spent its time and how many connections were opened.
+     */
+    static class PhaseTotals {
+
+        private final LongAdder measured = new LongAdder();
+        private final LongAdder newConnections = new LongAdder();
+        private final LongAdder estimated = new LongAdder();
+        private final LongAdder responses = new LongAdder();
+        private final LongAdder dnsMicros = new LongAdder();
+        private final LongAdder connectMicros = new LongAdder();
+        private final LongAdder tlsMicros = new LongAdder();
+        private final LongAdder waitMicros = new LongAdder();
+        private final LongAdder transferMicros = new LongAdder();
+
+        void record(RequestTimings timings) {
+            responses.increment();
+            waitMicros.add((long) (timings.getWaitMillis() * 1000));
+            transferMicros.add((long) (timings.getTransferMillis() * 1000));
+            if (timings.isMeasured()) {
+                measured.increment();
+                if (!timings.isReused()) {
+                    newConnections.increment();
+                }
+                if (timings.isReuseEstimated()) {
+                    estimated.increment();
+                }
+                dnsMicros.add((long) (timings.getDnsMillis() * 1000));
+                connectMicros.add((long) (timings.getConnectMillis() * 1000));
+                tlsMicros.add((long) (timings.getTlsMillis() * 1000));
+            }
+        }
+
+        void print() {
+            long count = responses.sum();
+            if (count == 0) {
+                return;
+            }
+            System.out.println();
+            System.out.println("  Mean phase breakdown (ms):");
+            long measuredCount = measured.sum();
+            if (measuredCount > 0) {
+                System.out.printf("    dns %.3f   connect %.3f   tls %.3f   (%d new connections%s)\n",
+                        mean(dnsMicros, measuredCount), mean(connectMicros, measuredCount),
+                        mean(tlsMicros, measuredCount), newConnections.sum(),
+                        estimated.sum() > 0 ? ", estimated over plain http" : "");
+            }
+            System.out.printf("    wait %.3f   transfer %.3f\n", mean(waitMicros, count), mean(transferMicros, count));
+        }
+
+        private static double mean(LongAdder totalMicros, long count) {
+            return totalMicros.sum() / 1000.0 / count;
+        }
+    }
+
+    static void countError(Map<String, LongAdder> errors, String category) {
+        errors.computeIfAbsent(category, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Parse a duration such as "30s", "500ms", "2m" or a bare number of seconds.
+     */
+    public static long parseDurationMillis(String value) {
+        String trimmed = value.trim().toLowerCase();
+        if (trimmed.endsWith("ms")) {
+            return Long.parseLong(trimmed.substring(0, trimmed.length() - 2));
+        } else if (trimmed.endsWith("s")) {
+            return Long.parseLong(trimmed.substring(0, trimmed.length() - 1)) * 1000;
+        } else if (trimmed.endsWith("m")) {
+            return Long.parseLong(trimmed.substring(0, trimmed.length() - 1)) * 60_000;
+        } else if (trimmed.endsWith("h")) {
+            return Long.parseLong(trimmed.substring(0, trimmed.length() - 1)) * 3_600_000;
+        }
+        return Long.parseLong(trimmed) * 1000;
+    }
+
+    static String formatDuration(long millis) {
+        return millis % 1000 == 0 ? (millis / 1000) + "s" : millis + "ms";
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        } else if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        } else if (bytes < 1024L * 1024 * 1024) {
+            return String.format("%.1f MB", bytes / (1024.0 * 1024));
+        }
+        return String.format("%.2f GB", bytes / (1024.0 * 1024 * 1024));
+    }
+}
@@ -1,42 +1,554 @@
 package com.curlbaby;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
+/**
+ * Command history shared by the REPL, the daemon and one-shot runs, stored in
+ * the append-only log ~/.curlbaby/history.log.
+ *
+ * Each entry is one line: epoch millis, a tab, then the command with
+ * backslashes and newlines escaped. Adding a command never rewrites the file:
+ * a background thread appends whatever has queued up and fsyncs once per
+ * batch (group commit), so a burst of commands costs a single fsync and
+ * nothing older than the last batch is lost in a crash. In memory only a ring
+ * buffer of the most recent commands is kept; entries from earlier sessions
+ * are read from the end of the log the first time they are asked for.
+ */
 public class CommandHistory {
 
-    private List<String> commands;
-    private static final int MAX_HISTORY = 100;
+    private static final int RING_CAPACITY = 1000;
+    private static final int TAIL_CHUNK = 64 * 1024;
+    private static final String LOG_NAME = "history.log";
+    private static final String LEGACY_HISTORY_FILE = ".curlbaby_history";
+
+    private static CommandHistory shared;
+
+    private final Path logPath;
+    // Ring buffer of the newest entries, oldest at ringStart
+    private final String[] ring = new String[RING_CAPACITY];
+    private int ringStart;
+    private int ringSize;
+    // Log length when this instance was created; the older entries in
+    // [0, preexistingLength) are loaded into the ring on demand
+    private long preexistingLength;
+    private boolean tailLoaded;
+    private String lastCommand;
+    // Search index over the whole log, built on the first search
+    private HistoryIndex index;
+    private boolean indexing;
+    private long clearCount;
+
+    private FileChannel channel;
+    private Thread flusher;
+    private List<String> pending = new ArrayList<>();
+    private long appendedCount;
+    private long syncedCount;
+    private boolean closed;
 
     public CommandHistory() {
-        this.commands = new ArrayList<>();
+        this(Paths.get(System.getProperty("user.home"), ".curlbaby", LOG_NAME));
     }
 
-    public void addCommand(String command) {
-        if (command != null && !command.trim().isEmpty()) {
-            commands.add(command);
+    public CommandHistory(Path logPath) {
+        this.logPath = logPath;
+        migrateLegacyHistory();
+        try {
+            preexistingLength = Files.exists(logPath) ? Files.size(logPath) : 0;
+        } catch (IOException e) {
+            preexistingLength = 0;
+        }
+    }
 
-            // Keep only recent commands
-            if (commands.size() > MAX_HISTORY) {
-                commands.remove(0);
-            }
+    /**
+     * The process-wide history.
+     */
+    public static synchronized CommandHistory getShared() {
+        if (shared == null) {
+            shared = new CommandHistory();
+        }
+        return shared;
+    }
+
+    /**
+     * Record a command. Blank commands and immediate repeats are skipped.
+     */
+    public synchronized void addCommand(String command) {
+        if (command == null || command.trim().isEmpty() || command.equals(lastCommand)) {
+            return;
+        }
+        if (closed) {
+            return;
+        }
+        lastCommand = command;
+        ringAdd(command);
+        if (index != null) {
+            index.add(command);
+        }
+
+        pending.add(encode(System.currentTimeMillis(), command));
+        appendedCount++;
+        if (flusher == null) {
+            startFlusher();
+        }
+        notifyAll();
+    }
+
+    public synchronized List<String> getRecentCommands(int count) {
+        loadTail();
+        int n = Math.min(count, ringSize);
+        List<String> recent = new ArrayList<>(n);
+        for (int i = ringSize - n; i < ringSize; i++) {
+            recent.add(ringGet(i));
         }
+        return recent;
     }
 
-    public List<String> getRecentCommands(int count) {
-        int size = commands.size();
-        int fromIndex = Math.max(0, size - count);
-        return new ArrayList<>(commands.subList(fromIndex, size));
+    public synchronized int getCommandCount() {
+        loadTail();
+        return ringSize;
     }
 
-    public int getCommandCount() {
-        return commands.size();
+    /**
+     * The entry at index, 0 being the oldest one held in memory.
+     */
+    public synchronized String get(int index) {
+        loadTail();
+        if (index < 0 || index >= ringSize) {
+            throw new IndexOutOfBoundsException("History index " + index + " of " + ringSize);
+        }
+        return ringGet(index);
     }
 
     public List<String> getAllCommands() {
-        return new ArrayList<>(commands);
+        return getRecentCommands(RING_CAPACITY);
+    }
+
+    /**
+     * Up to limit distinct commands from the whole history that contain
+     * query, ignoring case, best match first. The whole log is read into a
+     * HistoryIndex the first time, unless indexInBackground() already did;
+     * later commands are added to the index as they come.
+     */
+    public List<String> search(String query, int limit) {
+        boolean build;
+        synchronized (this) {
+            if (index != null) {
+                return index.search(query, limit);
+            }
+            build = !indexing;
+            indexing = true;
+        }
+        if (build) {
+            buildIndex();
+        }
+        synchronized (this) {
+            while (index == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return Collections.emptyList();
+                }
+            }
+            return index.search(query, limit);
+        }
+    }
+
+    /**
+     * Start building the search index on a background thread, so the first
+     * search in an interactive session does not have to wait for it.
+     */
+    public void indexInBackground() {
+        synchronized (this) {
+            if (index != null || indexing) {
+                return;
+            }
+            indexing = true;
+        }
+        Thread builder = new Thread(this::buildIndex, "curlbaby-history-index");
+        builder.setDaemon(true);
+        builder.setPriority(Thread.MIN_PRIORITY);
+        builder.start();
     }
 
-    public void clearHistory() {
-        commands.clear();
+    /**
+     * Index the log without holding the lock, so commands can still be
+     * added meanwhile, then catch up on what was appended in the meantime.
+     */
+    private void buildIndex() {
+        long indexed;
+        long generation;
+        synchronized (this) {
+            awaitSynced(appendedCount);
+            indexed = logLength();
+            generation = clearCount;
+        }
+        HistoryIndex built = new HistoryIndex();
+        readLog(built, 0, indexed);
+
+        synchronized (this) {
+            awaitSynced(appendedCount);
+            if (generation == clearCount) {
+                readLog(built, indexed, logLength());
+                index = built;
+            }
+            indexing = false;
+            notifyAll();
+        }
+    }
+
+    private long logLength() {
+        try {
+            return Files.exists(logPath) ? Files.size(logPath) : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Add the entries stored in bytes [from, to) of the log to target.
+     */
+    private void readLog(HistoryIndex target, long from, long to) {
+        if (to <= from) {
+            return;
+        }
+        try (FileChannel in = FileChannel.open(logPath, StandardOpenOption.READ)) {
+            byte[] bytes = new byte[TAIL_CHUNK];
+            int filled = 0; // bytes of an unfinished line kept from the previous read
+            long position = from;
+            while (position < to) {
+                if (filled == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2); // a line longer than the buffer
+                }
+                int length = (int) Math.min(bytes.length - filled, to - position);
+                int n = in.read(ByteBuffer.wrap(bytes, filled, length), position);
+                if (n < 0) {
+                    break;
+                }
+                position += n;
+                int end = filled + n;
+                int lineStart = 0;
+                for (int i = 0; i < end; i++) {
+                    if (bytes[i] == '\n') {
+                        indexLine(target, bytes, lineStart, i);
+                        lineStart = i + 1;
+                    }
+                }
+                filled = end - lineStart;
+                System.arraycopy(bytes, lineStart, bytes, 0, filled);
+            }
+            indexLine(target, bytes, 0, filled);
+        } catch (IOException e) {
+            System.err.println("Error indexing command history: " + e.getMessage());
+        }
+    }
+
+    private static void indexLine(HistoryIndex target, byte[] bytes, int from, int to) {
+        if (to > from) {
+            String command = decode(new String(bytes, from, to - from, StandardCharsets.UTF_8));
+            if (!command.isEmpty()) {
+                target.add(command);
+            }
+        }
+    }
+
+    /**
+     * Forget every entry, in memory and in the log.
+     */
+    public synchronized void clearHistory() {
+        awaitSynced(appendedCount);
+        Arrays.fill(ring, null);
+        ringStart = 0;
+        ringSize = 0;
+        lastCommand = null;
+        index = new HistoryIndex();
+        clearCount++;
+        tailLoaded = true;
+        preexistingLength = 0;
+        try {
+            if (channel != null) {
+                channel.truncate(0);
+                channel.force(false);
+            } else {
+                Files.deleteIfExists(logPath);
+            }
+        } catch (IOException e) {
+            System.err.println("Error clearing command history: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Block until every command added so far is on disk.
+     */
+    public synchronized void sync() {
+        awaitSynced(appendedCount);
+    }
+
+    /**
+     * Write out what is queued and close the log. Later commands are ignored.
+     */
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            thread = flusher;
+            notifyAll();
+        }
+        if (thread != null) {
+            try {
+                thread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing command history: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void awaitSynced(long count) {
+        while (syncedCount < count && flusher != null && flusher.isAlive()) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void startFlusher() {
+        flusher = new Thread(this::flushLoop, "curlbaby-history");
+        flusher.setDaemon(true);
+        flusher.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close));
+    }
+
+    /**
+     * Group commit: take everything queued since the last round, append it
+     * with one write and make it durable with one fsync.
+     */
+    private void flushLoop() {
+        while (true) {
+            List<String> batch;
+            long batchEnd;
+            synchronized (this) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+                batchEnd = appendedCount;
+            }
+
+            try {
+                StringBuilder lines = new StringBuilder();
+                for (String line : batch) {
+                    lines.append(line);
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                FileChannel out = channel();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(false);
+            } catch (IOException e) {
+                System.err.println("Error saving command history: " + e.getMessage());
+            }
+
+            synchronized (this) {
+                syncedCount = batchEnd;
+                notifyAll();
+            }
+        }
+    }
+
+    private synchronized FileChannel channel() throws IOException {
+        if (channel == null) {
+            Files.createDirectories(logPath.getParent());
+            channel = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    /**
+     * Fill the free part of the ring with the newest entries written before
+     * this instance existed, reading the log backwards from that point.
+     */
+    private void loadTail() {
+        if (tailLoaded) {
+            return;
+        }
+        tailLoaded = true;
+        int wanted = RING_CAPACITY - ringSize;
+        if (wanted == 0 || preexistingLength == 0) {
+            return;
+        }
+
+        List<String> older = new ArrayList<>(); // newest first
+        try (FileChannel in = FileChannel.open(logPath, StandardOpenOption.READ)) {
+            long position = preexistingLength;
+            byte[] carry = new byte[0]; // start of a line cut by the chunk boundary
+            while (position > 0 && older.size() < wanted) {
+                int length = (int) Math.min(TAIL_CHUNK, position);
+                position -= length;
+                ByteBuffer chunk = ByteBuffer.allocate(length + carry.length);
+                chunk.limit(length); // the rest of the buffer is for the carry
+                while (chunk.hasRemaining()) {
+                    if (in.read(chunk, position + chunk.position()) < 0) {
+                        break;
+                    }
+                }
+                chunk.limit(chunk.capacity());
+                chunk.put(carry);
+                byte[] bytes = chunk.array();
+
+                int end = bytes.length;
+                for (int i = bytes.length - 1; i >= 0 && older.size() < wanted; i--) {
+                    if (bytes[i] == '\n') {
+                        addDecoded(older, bytes, i + 1, end);
+                        end = i;
+                    }
+                }
+                carry = Arrays.copyOfRange(bytes, 0, end);
+                if (position == 0 && older.size() < wanted) {
+                    addDecoded(older, carry, 0, carry.length);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading command history: " + e.getMessage());
+            return;
+        }
+
+        // Put the older entries in front of this session's
+        String[] session = new String[ringSize];
+        for (int i = 0; i < ringSize; i++) {
+            session[i] = ringGet(i);
+        }
+        ringStart = 0;
+        ringSize = 0;
+        for (int i = Math.min(older.size(), wanted) - 1; i >= 0; i--) {
+            ringAdd(older.get(i));
+        }
+        for (String command : session) {
+            ringAdd(command);
+        }
+        if (lastCommand == null && ringSize > 0) {
+            lastCommand = ringGet(ringSize - 1);
+        }
+    }
+
+    private static void addDecoded(List<String> entries, byte[] bytes, int from, int to) {
+        if (to > from) {
+            String command = decode(new String(bytes, from, to - from, StandardCharsets.UTF_8));
+            if (!command.isEmpty()) {
+                entries.add(command);
+            }
+        }
+    }
+
+    private void ringAdd(String command) {
+        if (ringSize < RING_CAPACITY) {
+            ring[(ringStart + ringSize) % RING_CAPACITY] = command;
+            ringSize++;
+        } else {
+            ring[ringStart] = command;
+            ringStart = (ringStart + 1) % RING_CAPACITY;
+        }
+    }
+
+    private String ringGet(int index) {
+        return ring[(ringStart + index) % RING_CAPACITY];
+    }
+
+    static String encode(long timestamp, String command) {
+        StringBuilder line = new StringBuilder(command.length() + 16);
+        line.append(timestamp).append('\t');
+        for (int i = 0; i < command.length(); i++) {
+            char c = command.charAt(i);
+            if (c == '\\') {
+                line.append("\\\\");
+            } else if (c == '\n') {
+                line.append("\\n");
+            } else if (c == '\r') {
+                line.append("\\r");
+            } else {
+                line.append(c);
+            }
+        }
+        return line.append('\n').toString();
+    }
+
+    /**
+     * The command stored on one log line, without its timestamp.
+     */
+    static String decode(String line) {
+        int tab = line.indexOf('\t');
+        String escaped = tab >= 0 ? line.substring(tab + 1) : line;
+        if (escaped.indexOf('\\') < 0) {
+            return escaped;
+        }
+        StringBuilder command = new StringBuilder(escaped.length());
+        for (int i = 0; i < escaped.length(); i++) {
+            char c = escaped.charAt(i);
+            if (c == '\\' && i + 1 < escaped.length()) {
+                char next = escaped.charAt(++i);
+                command.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                command.append(c);
+            }
+        }
+        return command.toString();
+    }
+
+    /**
+     * Carry over ~/.curlbaby_history, the plain list the REPL used to rewrite
+     * on exit, the first time the log is created.
+     */
+    private void migrateLegacyHistory() {
+        Path legacy = Paths.get(System.getProperty("user.home"), LEGACY_HISTORY_FILE);
+        if (Files.exists(logPath) || !Files.exists(legacy)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(legacy, StandardCharsets.UTF_8)) {
+            ByteArrayOutputStream lines = new ByteArrayOutputStream();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    lines.writeBytes(encode(0, line).getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            Files.createDirectories(logPath.getParent());
+            Files.write(logPath, lines.toByteArray());
+        } catch (IOException e) {
+            System.err.println("Could not import " + legacy + ": " + e.getMessage());
+        }
     }
 }
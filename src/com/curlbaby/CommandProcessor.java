@@ -1,5 +1,7 @@
 package com.curlbaby;
 
+import com.curlbaby.HttpRequestHandler.Response;
+import java.io.IOException;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -13,6 +15,7 @@ public class CommandProcessor {
     private SimpleJsonEditor jsonEditor;
     private UIManager uiManager;
     private ApiCollectionCommands apiCommands;
+    private boolean interactive = true; // false in one-shot mode: no prompts, no history
 
     // Command patterns
     private static final Pattern CURL_PATTERN = Pattern.compile("curl\\s+(.+)");
@@ -20,15 +23,29 @@ public class CommandProcessor {
     private static final Pattern COLLECTION_PATTERN = Pattern.compile("collection\\s+(add|list|run|delete)\\s*(.*)");
 
     public CommandProcessor() {
-        this.httpHandler = new HttpRequestHandler();
-        this.commandHistory = new CommandHistory();
-        this.collectionManager = new ApiCollectionManager();
+        this(new UIManager());
+    }
+
+    public CommandProcessor(UIManager uiManager) {
+        this.uiManager = uiManager;
+        this.commandHistory = CommandHistory.getShared();
+        // One collection database for every component; it opens on first use
+        this.collectionManager = ApiCollectionManager.getShared();
+        this.httpHandler = new HttpRequestHandler(uiManager, collectionManager);
         this.jsonFormatter = new JsonFormatter();
         this.jsonEditor = new SimpleJsonEditor();
-        this.uiManager = new UIManager();
         this.apiCommands = new ApiCollectionCommands(collectionManager, uiManager, httpHandler);
     }
 
+    /**
+     * Disable prompts and history recording for one-shot use from scripts.
+     * Commands that cannot run without asking report an error instead.
+     */
+    public void setInteractive(boolean interactive) {
+        this.interactive = interactive;
+        httpHandler.setInteractive(interactive);
+    }
+
     /**
      * Main command processing method
      */
@@ -38,7 +55,9 @@ public class CommandProcessor {
         }
 
         String command = input.trim();
-        commandHistory.addCommand(command);
+        if (interactive) {
+            commandHistory.addCommand(command);
+        }
 
         try {
             // Split command into parts
@@ -61,7 +80,11 @@ public class CommandProcessor {
                     handleExit();
                     break;
                 case "history":
-                    showHistory();
+                    if (argument.startsWith("search")) {
+                        searchHistory(argument.substring("search".length()).trim(), command);
+                    } else {
+                        showHistory();
+                    }
                     break;
 
                 // HTTP Commands
@@ -109,9 +132,18 @@ public class CommandProcessor {
                 case "group":
                 case "api":
                 case "run":
+                case "bench":
                     handleApiCollectionCommands(command);
                     break;
 
+                case "batch":
+                    handleBatchCommand(argument);
+                    break;
+
+                case "serve":
+                    handleServeCommand(argument);
+                    break;
+
                 // Configuration commands
                 case "set":
                     handleSetCommand(command);
@@ -193,36 +225,23 @@ public class CommandProcessor {
      */
     private void handleCurlCommand(String command) {
         try {
-            System.out.println("🚀 Executing cURL command...");
-
-            // Parse and execute the cURL command
-            String response = httpHandler.executeCurl(command);
-
-            // Check if response is JSON and offer formatting
-            if (isJsonResponse(response)) {
-                System.out.println("\n📄 Response received (JSON detected):");
-                System.out.println(repeatString("─", 60));
-
-                // Auto-format JSON response
-                String formattedResponse = jsonFormatter.formatJson(response);
-                System.out.println(formattedResponse);
-                System.out.println(repeatString("─", 60));
+            Response response = httpHandler.executeCurl(command);
+            if (response == null || response.isStreamed() || !httpHandler.isInteractive()) {
+                return;
+            }
 
-                // Offer to edit the response
+            // Offer to edit JSON responses
+            String body = response.getBody();
+            if (isJsonResponse(body)) {
                 System.out.print("\n🔧 Would you like to edit this JSON? (y/N): ");
                 Scanner scanner = new Scanner(System.in);
                 String editChoice = scanner.nextLine().trim().toLowerCase();
 
                 if (editChoice.equals("y") || editChoice.equals("yes")) {
-                    String editedJson = jsonEditor.editJson(response);
+                    String editedJson = jsonEditor.editJson(body);
                     System.out.println("\n✅ Edited JSON:");
                     System.out.println(editedJson);
                 }
-            } else {
-                System.out.println("\n📄 Response:");
-                System.out.println(repeatString("─", 60));
-                System.out.println(response);
-                System.out.println(repeatString("─", 60));
             }
 
         } catch (Exception e) {
@@ -230,6 +249,99 @@ public class CommandProcessor {
         }
     }
 
+    /**
+     * Handle batch commands: batch run <file.jsonl> [--concurrency N] [--out results.jsonl]
+     */
+    private void handleBatchCommand(String argument) {
+        String[] tokens = argument.trim().split("\\s+");
+        if (tokens.length < 2 || !tokens[0].equalsIgnoreCase("run")) {
+            uiManager.displayError("Usage: batch run <file.jsonl> [--concurrency N] [--out results.jsonl]");
+            return;
+        }
+
+        String inputFile = tokens[1];
+        int concurrency = ApiCollectionCommands.DEFAULT_GROUP_CONCURRENCY;
+        String outputFile = null;
+        for (int i = 2; i < tokens.length; i++) {
+            if (i + 1 >= tokens.length) {
+                uiManager.displayError("Missing value for " + tokens[i]);
+                return;
+            }
+            switch (tokens[i]) {
+                case "-c":
+                case "--concurrency":
+                    try {
+                        concurrency = Integer.parseInt(tokens[++i]);
+                    } catch (NumberFormatException e) {
+                        uiManager.displayError("Invalid concurrency: " + tokens[i]);
+                        return;
+                    }
+                    break;
+                case "-o":
+                case "--out":
+                    outputFile = tokens[++i];
+                    break;
+                default:
+                    uiManager.displayError("Unexpected argument: " + tokens[i]);
+                    return;
+            }
+        }
+        if (concurrency < 1) {
+            uiManager.displayError("Concurrency must be at least 1");
+            return;
+        }
+
+        new BatchRunner(httpHandler, uiManager).run(inputFile, concurrency, outputFile);
+    }
+
+    /**
+     * Handle stub server commands: serve [--port N] [options] | serve status | serve stop
+     */
+    private void handleServeCommand(String argument) {
+        String trimmed = argument.trim();
+        StubServer running = StubServer.getRunning();
+        if (trimmed.equalsIgnoreCase("stop")) {
+            if (running == null) {
+                uiManager.displayError("No stub server is running");
+                return;
+            }
+            running.stop();
+            uiManager.displaySuccess("Stub server on port " + running.getPort() + " stopped");
+            return;
+        }
+        if (trimmed.equalsIgnoreCase("status")) {
+            if (running == null) {
+                uiManager.displayInfo("No stub server is running");
+                return;
+            }
+            System.out.println("🧪 Stub server on http://127.0.0.1:" + running.getPort() + "/: "
+                    + running.getRequests() + " requests, " + running.getErrors() + " errors, "
+                    + running.getResets() + " resets, " + BenchmarkRunner.formatBytes(running.getBytesSent()) + " sent");
+            return;
+        }
+
+        StubServer.Settings settings;
+        try {
+            settings = StubServer.Settings.parse(trimmed.split("\\s+"));
+        } catch (IllegalArgumentException e) {
+            uiManager.displayError(e.getMessage());
+            uiManager.displayInfo("Usage: serve [--port N] [--latency 50|20-200|exp:50|normal:100,20] [--size 10k]"
+                    + " [--chunked] [--chunk-size N] [--error-rate 0.05] [--error-status 503] [--reset-rate 0.01]"
+                    + " [--seed N]");
+            return;
+        }
+        try {
+            StubServer server = StubServer.start(settings);
+            uiManager.displaySuccess("Stub server listening on http://127.0.0.1:" + server.getPort() + "/");
+            uiManager.displayInfo("Latency " + settings.latency() + ", " + BenchmarkRunner.formatBytes(settings.size())
+                    + " bodies" + (settings.chunked() ? " in " + settings.chunkSize() + "-byte chunks" : "")
+                    + ", error rate " + settings.errorRate() + " (" + settings.errorStatus() + "), reset rate "
+                    + settings.resetRate() + ", seed " + settings.seed());
+        } catch (IOException e) {
+            uiManager.displayError("Could not start stub server: " + e.getMessage());
+        }
+    }
+
     /**
      * Handle JSON commands
      */
@@ -263,6 +375,10 @@ public class CommandProcessor {
                 break;
 
             case "edit":
+                if (!interactive) {
+                    uiManager.displayError("json edit needs the interactive shell");
+                    return;
+                }
                 System.out.println("\n🔧 Opening JSON editor...");
                 String editedJson = jsonEditor.editJson(jsonString);
                 System.out.println("\n📄 Final JSON:");
@@ -272,11 +388,11 @@ public class CommandProcessor {
                 break;
 
             case "validate":
-                boolean isValid = jsonFormatter.isValidJson(jsonString);
+                JsonFormatter.Validation validation = jsonFormatter.validate(jsonString);
                 System.out.println("\n🔍 JSON Validation Result:");
-                System.out.println(isValid ? "✅ Valid JSON" : "❌ Invalid JSON");
+                System.out.println((validation.isValid() ? "✅ " : "❌ ") + validation);
 
-                if (!isValid) {
+                if (!validation.isValid()) {
                     System.out.println("💡 Use 'json edit <json>' to fix issues");
                 }
                 break;
@@ -337,7 +453,7 @@ public class CommandProcessor {
     }
 
     /**
-     * Handle API collection commands (group, api, run)
+     * Handle API collection commands (group, api, run, bench)
      */
     private void handleApiCollectionCommands(String command) {
         String[] parts = command.split("\\s+", 2);
@@ -378,14 +494,59 @@ public class CommandProcessor {
                 System.out.println("✅ Default headers set");
                 break;
 
+            case "transport":
+                if (httpHandler.setTransport(value)) {
+                    System.out.println("✅ Transport set to " + httpHandler.getTransport().getName());
+                } else {
+                    System.out.println("❌ Unknown transport: " + value);
+                    System.out.println("💡 Available transports: h1 (HTTP/1.1), h2 (HTTP/2 over TLS), h2c (HTTP/2 cleartext)");
+                }
+                break;
+
+            case "stream":
+                if (value.equalsIgnoreCase("on") || value.equalsIgnoreCase("off")) {
+                    httpHandler.setStreamBodies(value.equalsIgnoreCase("on"));
+                    System.out.println("✅ Response streaming " + value.toLowerCase());
+                } else {
+                    System.out.println("❌ Invalid stream value. Use 'on' or 'off'.");
+                }
+                break;
+
+            case "compression":
+                if (value.equalsIgnoreCase("on") || value.equalsIgnoreCase("off")) {
+                    httpHandler.setCompression(value.equalsIgnoreCase("on"));
+                    System.out.println("✅ Response compression " + value.toLowerCase());
+                } else {
+                    System.out.println("❌ Invalid compression value. Use 'on' or 'off'.");
+                }
+                break;
+
+            case "cache":
+                if (value.equalsIgnoreCase("on") || value.equalsIgnoreCase("off")) {
+                    httpHandler.setCacheResponses(value.equalsIgnoreCase("on"));
+                    System.out.println("✅ Response cache " + value.toLowerCase());
+                } else if (value.equalsIgnoreCase("clear")) {
+                    HttpResponseCache.getShared().clear();
+                    System.out.println("✅ Response cache cleared");
+                } else {
+                    System.out.println("❌ Invalid cache value. Use 'on', 'off' or 'clear'.");
+                }
+                break;
+
             case "output":
-                // Set output format or file
-                System.out.println("✅ Output setting updated: " + value);
+                if (value.equalsIgnoreCase("terminal") || value.equalsIgnoreCase("stdout")) {
+                    httpHandler.getResponseStreamer().setOutputFile(null);
+                    System.out.println("✅ Response bodies will be printed to the terminal");
+                } else {
+                    // Kept absolute: with the daemon, later commands may come from elsewhere
+                    httpHandler.getResponseStreamer().setOutputFile(WorkingDirectory.resolve(value).toString());
+                    System.out.println("✅ Response bodies will be streamed to " + value);
+                }
                 break;
 
             default:
                 System.out.println("❌ Unknown property: " + property);
-                System.out.println("💡 Available properties: timeout, headers, output");
+                System.out.println("💡 Available properties: timeout, headers, transport, stream, compression, cache, output");
         }
     }
 
@@ -408,13 +569,40 @@ public class CommandProcessor {
         System.out.println(repeatString("─", 50));
     }
 
+    /**
+     * Show the history entries matching a query, best match first
+     */
+    private void searchHistory(String query, String currentCommand) {
+        if (query.isEmpty()) {
+            uiManager.displayError("Usage: history search <text>");
+            return;
+        }
+
+        List<String> matches = new ArrayList<>(commandHistory.search(query, 21));
+        matches.remove(currentCommand); // the search itself always matches
+        if (matches.size() > 20) {
+            matches.remove(20);
+        }
+        if (matches.isEmpty()) {
+            uiManager.displayInfo("No history entries match: " + query);
+            return;
+        }
+        for (int i = 0; i < matches.size(); i++) {
+            System.out.printf("%2d. %s\n", i + 1, matches.get(i));
+        }
+    }
+
     /**
      * Show application status
      */
     private void showStatus() {
         System.out.println("\n📊 cUrlBaby Status:");
         System.out.println(repeatString("─", 50));
-        System.out.println("🔗 HTTP Handler: " + (httpHandler != null ? "Ready" : "Not initialized"));
+        if (httpHandler == null) {
+            System.out.println("🔗 HTTP Handler: Not initialized");
+        } else {
+            printHttpStatus();
+        }
         System.out.println("📜 Command History: " + commandHistory.getCommandCount() + " commands");
         System.out.println("📚 Collections: " + collectionManager.getCollectionCount());
         System.out.println("🔧 JSON Formatter: Ready");
@@ -423,6 +611,22 @@ public class CommandProcessor {
         System.out.println(repeatString("─", 50));
     }
 
+    private void printHttpStatus() {
+        System.out.println("🔗 HTTP Handler: Ready (transport " + httpHandler.getTransport().getName() + ")");
+        ConnectionPool pool = httpHandler.getConnectionPool();
+        System.out.println("🔌 Connection Pool: " + pool.getHits() + " hits, " + pool.getMisses() + " misses"
+                + (pool.getEstimated() > 0 ? " (" + pool.getEstimated() + " over plain http, estimated)" : "")
+                + " (predicted " + pool.getIdleCount() + " idle, " + pool.getEvictions() + " expired)");
+        if (httpHandler.isCacheResponses()) {
+            HttpResponseCache cache = HttpResponseCache.getShared();
+            System.out.println("💾 Response Cache: " + cache.getHits() + " hits, " + cache.getRevalidations()
+                    + " revalidated, " + cache.getMisses() + " misses, " + cache.getBytesSaved() + " bytes saved ("
+                    + cache.getEntryCount() + " entries, " + cache.getTotalBytes() + " bytes stored)");
+        } else {
+            System.out.println("💾 Response Cache: off");
+        }
+    }
+
     /**
      * Show help information
      */
@@ -435,8 +639,14 @@ public class CommandProcessor {
         System.out.println("  get <url>                - Execute GET request");
         System.out.println("  post <url>               - Execute POST request (interactive)");
         System.out.println("  put <url>                - Execute PUT request (interactive)");
+        System.out.println("  post <url> --data-binary @file - Upload a file, streamed from disk (also put)");
+        System.out.println("  post <url> -F name=@file  - Upload a multipart form, files streamed from disk");
         System.out.println("  delete <url>             - Execute DELETE request");
         System.out.println("  curl <options> <url>     - Execute cURL command");
+        System.out.println("  batch run <file.jsonl> [--concurrency N] [--out results.jsonl]");
+        System.out.println("                           - Run a JSONL file of requests in parallel");
+        System.out.println("  serve [--port N] [--latency SPEC] [--size N] [--chunked] [--error-rate P] [--reset-rate P]");
+        System.out.println("                           - Start a local stub server (serve status / serve stop)");
         System.out.println();
         System.out.println("🔧 JSON COMMANDS:");
         System.out.println("  json format <json>       - Format JSON with indentation");
@@ -455,6 +665,7 @@ public class CommandProcessor {
         System.out.println("  group list               - List all API groups");
         System.out.println("  group show <id>          - Show group details");
         System.out.println("  group delete <id>        - Delete API group");
+        System.out.println("  group run <id> [-c N]    - Run every API in a group in parallel");
         System.out.println();
         System.out.println("🔗 API REQUEST COMMANDS:");
         System.out.println("  api save <group> <name>  - Save API request to group");
@@ -462,14 +673,20 @@ public class CommandProcessor {
         System.out.println("  api show <id>            - Show API request details");
         System.out.println("  api delete <id>          - Delete API request");
         System.out.println("  run <id>                 - Execute saved API request");
+        System.out.println("  bench <id> -c N -n N|-d T - Load test a saved API request");
         System.out.println();
         System.out.println("⚙️ CONFIGURATION:");
         System.out.println("  set timeout <seconds>    - Set request timeout");
         System.out.println("  set headers <headers>    - Set default headers");
-        System.out.println("  set output <format>      - Set output format");
+        System.out.println("  set transport <h1|h2|h2c> - Select HTTP/1.1, HTTP/2 or HTTP/2 cleartext");
+        System.out.println("  set stream <on|off>      - Stream response bodies as they arrive");
+        System.out.println("  set compression <on|off> - Ask for gzip/deflate bodies and decode them (default on)");
+        System.out.println("  set cache <on|off|clear> - Cache GET responses and revalidate them with ETag/Last-Modified");
+        System.out.println("  set output <file|terminal> - Stream response bodies to a file");
         System.out.println();
         System.out.println("🔍 UTILITY COMMANDS:");
         System.out.println("  history                  - Show command history");
+        System.out.println("  history search <text>    - Find past commands (Ctrl-R at the prompt)");
         System.out.println("  status                   - Show application status");
         System.out.println("  clear/cls                - Clear screen");
         System.out.println("  help/?                   - Show this help");
@@ -492,8 +709,8 @@ public class CommandProcessor {
         }
 
         String trimmed = response.trim();
-        return (trimmed.startsWith("{") && trimmed.endsWith("}"))
-                || (trimmed.startsWith("[") && trimmed.endsWith("]"));
+        return (trimmed.startsWith("{") || trimmed.startsWith("["))
+                && jsonFormatter.isValidJson(trimmed);
     }
 
     /**
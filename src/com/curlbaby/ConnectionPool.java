@@ -0,0 +1,233 @@
+package com.curlbaby;
+
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keep-alive bookkeeping for the HttpURLConnection transport.
+ *
+ * The sockets themselves live in the JDK keep-alive cache, which hands an idle
+ * connection to the next request for the same host as long as the previous
+ * response was read to the end and disconnect() was never called. This class
+ * neither owns nor limits them: it mirrors which sockets each host should have
+ * parked (dropping them from the mirror once their keep-alive window runs out)
+ * and counts how often a request found a warm connection waiting.
+ *
+ * The mirror only predicts reuse: the JDK or the server may have closed a
+ * parked socket already, so the idle and expired counts are predictions too.
+ * For https the handler observes whether a new connection was made
+ * (TimingSSLSocketFactory) and reports that; plain http gives no such signal,
+ * so those hits and misses are the prediction and are counted as estimated.
+ */
+public class ConnectionPool {
+
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 5000; // JDK keep-alive default
+    // Upper bound on idle sockets the JDK parks per host; read once when its
+    // keep-alive cache is first used, so it is set high enough for benchmarks
+    private static final int JDK_IDLE_CONNECTION_CAP = 256;
+    // What the JDK will actually park per host, for the mirror
+    private static final int MAX_IDLE_PER_HOST;
+
+    static {
+        // Process-wide settings, so applied once however many pools exist;
+        // an http.maxConnections the user configured is left alone
+        System.setProperty("http.keepAlive", "true");
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", String.valueOf(JDK_IDLE_CONNECTION_CAP));
+        }
+        int maxIdle;
+        try {
+            maxIdle = Integer.parseInt(System.getProperty("http.maxConnections"));
+        } catch (NumberFormatException e) {
+            maxIdle = 5; // the JDK's own default
+        }
+        MAX_IDLE_PER_HOST = Math.max(maxIdle, 1);
+    }
+
+    private final long idleTimeoutMillis;
+    private final Map<String, HostPool> hosts = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong estimated = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ConnectionPool() {
+        this(DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    public ConnectionPool(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Start tracking a request to the given URL. Never waits: how many
+     * connections a host gets is up to the caller's own concurrency.
+     */
+    public Lease acquire(URL url) {
+        HostPool pool = hosts.computeIfAbsent(hostKey(url), k -> new HostPool());
+        return new Lease(pool, pool.takeIdle(System.currentTimeMillis(), evictions));
+    }
+
+    /**
+     * Drop idle connections whose keep-alive window has expired from the mirror.
+     */
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (HostPool pool : hosts.values()) {
+            pool.evictExpired(now, evictions);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * How many of the hits and misses were predicted rather than observed.
+     */
+    public long getEstimated() {
+        return estimated.get();
+    }
+
+    /**
+     * Predicted: idle connections whose keep-alive window ran out, or that
+     * the JDK had no room to park.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Predicted: idle connections the JDK should be holding right now.
+     */
+    public int getIdleCount() {
+        evictIdle();
+        int idle = 0;
+        for (HostPool pool : hosts.values()) {
+            idle += pool.idleCount();
+        }
+        return idle;
+    }
+
+    /**
+     * Parse the timeout from a "Keep-Alive: timeout=5, max=100" response header.
+     * Returns -1 when the server did not advertise one.
+     */
+    static long parseKeepAliveTimeout(String keepAliveHeader) {
+        if (keepAliveHeader == null) {
+            return -1;
+        }
+        for (String param : keepAliveHeader.split(",")) {
+            String[] keyValue = param.trim().split("=", 2);
+            if (keyValue.length == 2 && keyValue[0].trim().equalsIgnoreCase("timeout")) {
+                try {
+                    return Long.parseLong(keyValue[1].trim()) * 1000;
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static String hostKey(URL url) {
+        int port = url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+        return url.getProtocol().toLowerCase() + "://" + url.getHost().toLowerCase() + ":" + port;
+    }
+
+    /**
+     * One request's use of a host. Call release() exactly once when the
+     * response has been consumed.
+     */
+    public class Lease {
+
+        private final HostPool pool;
+        private final boolean reused;
+        private boolean released;
+
+        private Lease(HostPool pool, boolean reused) {
+            this.pool = pool;
+            this.reused = reused;
+        }
+
+        /**
+         * Whether an idle connection to the host should be waiting in the JDK
+         * keep-alive cache, going by the pool's bookkeeping.
+         */
+        public boolean isReused() {
+            return reused;
+        }
+
+        /**
+         * Count the lease as a hit or a miss once the connection is up.
+         *
+         * @param connected whether a new connection was made
+         * @param observed  false when connected is only isReused()'s prediction
+         */
+        public void recordConnect(boolean connected, boolean observed) {
+            (connected ? misses : hits).incrementAndGet();
+            if (!observed) {
+                estimated.incrementAndGet();
+            }
+        }
+
+        /**
+         * Finish the request.
+         *
+         * @param reusable true when the body was fully read and the server allows
+         *                 keep-alive, so the JDK has parked the socket for reuse
+         * @param keepAliveMillis the server-advertised keep-alive timeout, or -1
+         */
+        public void release(boolean reusable, long keepAliveMillis) {
+            if (released) {
+                return;
+            }
+            released = true;
+
+            if (reusable) {
+                long ttl = keepAliveMillis > 0 ? Math.min(keepAliveMillis, idleTimeoutMillis) : idleTimeoutMillis;
+                pool.parkIdle(System.currentTimeMillis() + ttl, MAX_IDLE_PER_HOST, evictions);
+            }
+        }
+    }
+
+    private static class HostPool {
+
+        // Expiry timestamps of the idle sockets parked for this host, oldest first
+        private final Deque<Long> idleExpiries = new ArrayDeque<>();
+
+        synchronized boolean takeIdle(long now, AtomicLong evictions) {
+            evictExpired(now, evictions);
+            // The JDK cache hands out the most recently parked socket first
+            return idleExpiries.pollLast() != null;
+        }
+
+        synchronized void parkIdle(long expiresAt, int maxIdle, AtomicLong evictions) {
+            idleExpiries.addLast(expiresAt);
+            while (idleExpiries.size() > maxIdle) {
+                idleExpiries.pollFirst();
+                evictions.incrementAndGet();
+            }
+        }
+
+        synchronized void evictExpired(long now, AtomicLong evictions) {
+            while (!idleExpiries.isEmpty() && idleExpiries.peekFirst() <= now) {
+                idleExpiries.pollFirst();
+                evictions.incrementAndGet();
+            }
+        }
+
+        synchronized int idleCount() {
+            return idleExpiries.size();
+        }
+    }
+}
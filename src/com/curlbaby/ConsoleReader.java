@@ -22,12 +22,13 @@ public class ConsoleReader {
     private static final int BACKSPACE = 127;
     private static final int ENTER = 10;
     private static final int CTRL_C = 3;
+    private static final int CTRL_R = 18;
 
     private final BlockingQueue<Integer> keyPressQueue = new LinkedBlockingQueue<>();
     private volatile boolean isReading = false;
 
     public ConsoleReader(UIManager uiManager) {
-        this.history = new CommandHistory();
+        this.history = CommandHistory.getShared();
         this.uiManager = uiManager;
     }
 
@@ -113,6 +114,29 @@ public class ConsoleReader {
                 if (key == ENTER) {
                     System.out.println();
                     break;
+                } else if (key == CTRL_R) {
+                    ReverseSearch.Result result = new ReverseSearch(history, uiManager).run(() -> {
+                        try {
+                            return keyPressQueue.take();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return -1;
+                        }
+                    });
+                    if (result.line() != null) {
+                        buffer = new StringBuilder(result.line());
+                        cursorPosition = buffer.length();
+                    }
+                    System.out.print(CLEAR_LINE + RETURN_TO_LINE_START);
+                    uiManager.displayPrompt();
+                    System.out.print(buffer.toString());
+                    if (cursorPosition < buffer.length()) {
+                        System.out.print("\u001b[" + (buffer.length() - cursorPosition) + "D");
+                    }
+                    if (result.run()) {
+                        System.out.println();
+                        break;
+                    }
                 } else if (key == BACKSPACE) {
                     if (cursorPosition > 0) {
                         buffer.deleteCharAt(cursorPosition - 1);
@@ -184,7 +208,7 @@ public class ConsoleReader {
                     }
                 }
             }
-        } catch (InterruptedException e) {
+        } catch (InterruptedException | IOException e) {
             System.err.println("Input reading interrupted: " + e.getMessage());
         } finally {
             stopKeyListener();
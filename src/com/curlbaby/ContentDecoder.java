@@ -0,0 +1,288 @@
+package com.curlbaby;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Streaming decoders for gzip and deflate Content-Encoding.
+ *
+ * GZIPInputStream allocates a native zlib stream per response and frees it on
+ * close; here Inflaters are borrowed from a small pool and reset and returned
+ * when the body stream is closed, so a run of compressed responses reuses the
+ * same few. The gzip framing (header, CRC-32 and length trailer, concatenated
+ * members) is handled here around a raw Inflater. "deflate" is accepted both
+ * as the zlib stream the spec asks for and as the raw deflate data some
+ * servers send instead.
+ */
+final class ContentDecoder {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_POOLED = 16;
+    // nowrap (raw deflate, used for gzip) and zlib-wrapped Inflaters
+    private static final BlockingQueue<Inflater> RAW_INFLATERS = new ArrayBlockingQueue<>(MAX_POOLED);
+    private static final BlockingQueue<Inflater> ZLIB_INFLATERS = new ArrayBlockingQueue<>(MAX_POOLED);
+
+    private ContentDecoder() {
+    }
+
+    /**
+     * Whether decode() can undo the given Content-Encoding.
+     */
+    static boolean supports(String encoding) {
+        if (encoding == null) {
+            return false;
+        }
+        switch (encoding.trim().toLowerCase()) {
+            case "gzip":
+            case "x-gzip":
+            case "deflate":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Wrap in with a decoder for the encoding; unsupported encodings pass
+     * through unchanged. Closing the returned stream closes in.
+     */
+    static InputStream decode(String encoding, InputStream in) throws IOException {
+        if (!supports(encoding)) {
+            return in;
+        }
+        PushbackInputStream pushback = new PushbackInputStream(in, BUFFER_SIZE);
+        if (encoding.trim().equalsIgnoreCase("deflate")) {
+            int first = pushback.read();
+            int second = first < 0 ? -1 : pushback.read();
+            if (second < 0) {
+                // Empty (or one stray byte): nothing to inflate
+                pushback.close();
+                return InputStream.nullInputStream();
+            }
+            pushback.unread(second);
+            pushback.unread(first);
+            boolean zlib = (first & 0x0f) == 8 && ((first << 8) | second) % 31 == 0;
+            return new PooledInflaterStream(pushback, !zlib);
+        }
+        return new GzipStream(pushback);
+    }
+
+    private static Inflater borrow(boolean nowrap) {
+        Inflater inflater = (nowrap ? RAW_INFLATERS : ZLIB_INFLATERS).poll();
+        return inflater != null ? inflater : new Inflater(nowrap);
+    }
+
+    private static void release(Inflater inflater, boolean nowrap) {
+        inflater.reset();
+        if (!(nowrap ? RAW_INFLATERS : ZLIB_INFLATERS).offer(inflater)) {
+            inflater.end();
+        }
+    }
+
+    /**
+     * An InflaterInputStream that hands its Inflater back to the pool on close.
+     */
+    private static class PooledInflaterStream extends InflaterInputStream {
+
+        private final boolean nowrap;
+        private boolean released;
+
+        PooledInflaterStream(PushbackInputStream in, boolean nowrap) {
+            super(in, borrow(nowrap), BUFFER_SIZE);
+            this.nowrap = nowrap;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (released) {
+                return;
+            }
+            released = true;
+            try {
+                super.close();
+            } finally {
+                release(inf, nowrap);
+            }
+        }
+    }
+
+    /**
+     * gzip (RFC 1952) on top of a pooled raw Inflater, checking each member's
+     * CRC-32 and length like GZIPInputStream does.
+     */
+    private static class GzipStream extends PooledInflaterStream {
+
+        private static final int FHCRC = 2;
+        private static final int FEXTRA = 4;
+        private static final int FNAME = 8;
+        private static final int FCOMMENT = 16;
+
+        private final PushbackInputStream source;
+        private final CRC32 crc = new CRC32();
+        private boolean started;
+        private boolean eos;
+
+        GzipStream(PushbackInputStream in) {
+            super(in, true);
+            this.source = in;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (!started) {
+                started = true;
+                eos = !readHeader(true);
+            }
+            while (!eos) {
+                int n = super.read(buffer, offset, length);
+                if (n > 0) {
+                    crc.update(buffer, offset, n);
+                    return n;
+                }
+                if (n == 0 && length == 0) {
+                    return 0;
+                }
+                eos = readTrailer();
+            }
+            return -1;
+        }
+
+        /**
+         * Read a member header.
+         *
+         * @return false if the input ended (or held no further gzip member)
+         *         where a header could start
+         */
+        private boolean readHeader(boolean first) throws IOException {
+            int b0 = source.read();
+            if (b0 < 0) {
+                return false;
+            }
+            int b1 = source.read();
+            if (b0 != 0x1f || b1 != 0x8b) {
+                if (first) {
+                    throw new ZipException("Not in GZIP format");
+                }
+                return false; // trailing garbage after a member is ignored, as GZIPInputStream does
+            }
+            if (readByte() != 8) {
+                throw new ZipException("Unsupported compression method");
+            }
+            int flags = readByte();
+            skipBytes(6); // modification time, extra flags, OS
+            if ((flags & FEXTRA) != 0) {
+                skipBytes(readByte() | (readByte() << 8));
+            }
+            if ((flags & FNAME) != 0) {
+                while (readByte() != 0) {
+                    // skip the file name
+                }
+            }
+            if ((flags & FCOMMENT) != 0) {
+                while (readByte() != 0) {
+                    // skip the comment
+                }
+            }
+            if ((flags & FHCRC) != 0) {
+                skipBytes(2);
+            }
+            crc.reset();
+            return true;
+        }
+
+        /**
+         * Check the trailer of the member that just ended and start on the
+         * next one if there is one.
+         *
+         * @return true at the end of the stream
+         */
+        private boolean readTrailer() throws IOException {
+            // The inflater stopped partway through the last buffer it was given;
+            // the rest is the trailer and whatever follows it
+            int remaining = inf.getRemaining();
+            if (remaining > 0) {
+                source.unread(buf, len - remaining, remaining);
+            }
+            long expectedCrc = readInt();
+            long expectedSize = readInt();
+            if (expectedCrc != crc.getValue()) {
+                throw new ZipException("Corrupt GZIP trailer (CRC mismatch)");
+            }
+            if (expectedSize != (inf.getBytesWritten() & 0xffffffffL)) {
+                throw new ZipException("Corrupt GZIP trailer (size mismatch)");
+            }
+
+            inf.reset();
+            return !readHeader(false);
+        }
+
+        private long readInt() throws IOException {
+            return (readByte() | (readByte() << 8) | ((long) readByte() << 16) | ((long) readByte() << 24))
+                    & 0xffffffffL;
+        }
+
+        private int readByte() throws IOException {
+            int b = source.read();
+            if (b < 0) {
+                throw new EOFException("Unexpected end of GZIP input");
+            }
+            return b;
+        }
+
+        private void skipBytes(int n) throws IOException {
+            for (int i = 0; i < n; i++) {
+                readByte();
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes read through it, e.g. the encoded size of a body.
+     */
+    static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -1,40 +1,34 @@
 package com.curlbaby;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.Console;
-import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
 
 public class CurlBabyApp {
 
     private static final UIManager uiManager = new UIManager();
-    private static final HttpRequestHandler requestHandler = new HttpRequestHandler(uiManager);
-    // Fixed: CommandProcessor constructor takes no arguments
-    private static final CommandProcessor commandProcessor = new CommandProcessor();
     private static final Scanner scanner = new Scanner(System.in);
-    private static final List<String> commandHistory = new ArrayList<>();
-    private static int historyIndex = 0;
-    private static final String HISTORY_FILE = System.getProperty("user.home") + "/.curlbaby_history";
+    private static final CommandHistory commandHistory = CommandHistory.getShared();
+    private static int historyIndex = -1; // -1: past the newest entry, wherever that is
 
     public static void main(String[] args) {
-        uiManager.displayWelcomeScreen();
-        loadCommandHistory();
+        if (args.length > 0) {
+            System.exit(runOnce(args));
+        }
 
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-            saveCommandHistory();
-        }));
+        CommandProcessor commandProcessor = new CommandProcessor(uiManager);
+        uiManager.displayWelcomeScreen();
 
         Console console = System.console();
         boolean supportsArrowKeys = (console != null);
 
         if (supportsArrowKeys) {
-            uiManager.displayInfo("Tip: Use UP and DOWN arrow keys to navigate command history");
+            uiManager.displayInfo("Tip: Use UP and DOWN arrow keys to navigate command history, Ctrl-R to search it");
+            commandHistory.indexInBackground();
         }
 
         while (true) {
@@ -60,11 +54,9 @@ public class CurlBabyApp {
                     break;
                 }
 
-                // Add command to history if it's not a duplicate of the last command
-                if (commandHistory.isEmpty() || !commandHistory.get(commandHistory.size() - 1).equals(input)) {
-                    commandHistory.add(input);
-                    historyIndex = commandHistory.size();
-                }
+                // Duplicates of the previous command are skipped by the history itself
+                commandHistory.addCommand(input);
+                historyIndex = -1;
 
                 // Handle special commands directly
                 if (input.toLowerCase().startsWith("history")) {
@@ -72,13 +64,14 @@ public class CurlBabyApp {
                     String argument = parts.length > 1 ? parts[1] : "";
 
                     if (argument.equals("clear")) {
-                        commandHistory.clear();
-                        historyIndex = 0;
+                        commandHistory.clearHistory();
+                        historyIndex = -1;
                         uiManager.displaySuccess("Command history cleared");
+                        continue;
                     } else if (argument.isEmpty()) {
                         printHistory();
+                        continue;
                     }
-                    continue;
                 }
 
                 // Fixed: processCommand takes only one String argument (the full input)
@@ -90,9 +83,124 @@ public class CurlBabyApp {
                 e.printStackTrace();
             }
         }
+
+        // The stub server's threads would keep the JVM alive
+        StubServer stubServer = StubServer.getRunning();
+        if (stubServer != null) {
+            stubServer.stop();
+        }
+    }
+
+    /**
+     * Run one command given as program arguments, e.g. "curlbaby get <url>" or
+     * "curlbaby run 3", with no welcome screen, REPL, history file or prompts:
+     * the command is not recorded in the history, and commands that would
+     * prompt (post/put without options, api save, deletes) fail instead.
+     * Databases and Jackson are only opened if the command needs them. When a
+     * daemon started with --daemon is running, the command is forwarded to it
+     * instead; --no-daemon forces running it in this process.
+     *
+     * @return the process exit status: 0, or 1 if any error was reported
+     */
+    private static int runOnce(String[] args) {
+        Path socketPath = Daemon.defaultSocketPath();
+        switch (args[0]) {
+            case "--daemon":
+                return runDaemon(socketPath);
+            case "--stop-daemon":
+                return stopDaemon(socketPath);
+            default:
+                break;
+        }
+        boolean useDaemon = !args[0].equals("--no-daemon");
+        if (!useDaemon) {
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        if (args.length == 0 || args[0].equals("--help") || args[0].equals("-h")) {
+            args = new String[] {"help"};
+        }
+
+        // A running daemon answers without paying for JVM warm-up here; a stub
+        // server belongs in the foreground process that asked for it
+        if (useDaemon && !args[0].equals("serve") && Files.exists(socketPath)) {
+            try {
+                return Daemon.forward(socketPath, joinArguments(args));
+            } catch (IOException e) {
+                // Stale socket; run the command in this process instead
+            }
+        }
+        return runInProcess(args);
+    }
+
+    private static int runInProcess(String[] args) {
+        CommandProcessor commandProcessor = new CommandProcessor(uiManager);
+        commandProcessor.setInteractive(false);
+        commandProcessor.processCommand(joinArguments(args));
+        System.out.flush();
+
+        // 'curlbaby serve' runs until interrupted
+        StubServer stubServer = StubServer.getRunning();
+        if (stubServer != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(stubServer::stop));
+            try {
+                stubServer.awaitStop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return UIManager.getErrorCount() > 0 ? 1 : 0;
+    }
+
+    private static int runDaemon(Path socketPath) {
+        try {
+            Daemon.serve(socketPath, uiManager);
+            return 0;
+        } catch (IOException e) {
+            uiManager.displayError("Could not start daemon: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private static int stopDaemon(Path socketPath) {
+        try {
+            Daemon.stop(socketPath);
+            uiManager.displaySuccess("Daemon stopped");
+            return 0;
+        } catch (IOException e) {
+            uiManager.displayError("No daemon running on " + socketPath);
+            return 1;
+        }
+    }
+
+    /**
+     * Rebuild a command line from arguments the shell already split, quoting
+     * the ones that contain spaces or quotes so they survive re-parsing.
+     */
+    static String joinArguments(String[] args) {
+        StringBuilder line = new StringBuilder();
+        for (String arg : args) {
+            if (line.length() > 0) {
+                line.append(' ');
+            }
+            boolean plain = !arg.isEmpty();
+            for (int i = 0; i < arg.length() && plain; i++) {
+                char c = arg.charAt(i);
+                plain = !Character.isWhitespace(c) && c != '\'' && c != '"' && c != '\\' && c != '$';
+            }
+            if (plain) {
+                line.append(arg);
+            } else if (arg.indexOf('"') < 0 && arg.indexOf('\\') < 0 && arg.indexOf('$') < 0 && arg.indexOf('`') < 0) {
+                line.append('"').append(arg).append('"');
+            } else {
+                line.append('\'').append(arg.replace("'", "'\\''")).append('\'');
+            }
+        }
+        return line.toString();
     }
 
     private static String readLineWithArrows() {
+        // Keys must arrive one at a time, unechoed, for arrows and Ctrl-R to work
+        setTerminalMode("-icanon -echo");
         try {
             StringBuilder buffer = new StringBuilder();
 
@@ -104,6 +212,21 @@ public class CurlBabyApp {
                     break;
                 }
 
+                if (c == 18) { // Ctrl-R
+                    ReverseSearch.Result result = new ReverseSearch(commandHistory, uiManager).run(System.in::read);
+                    System.out.print("\r\u001b[2K");
+                    uiManager.displayPrompt();
+                    if (result.line() != null) {
+                        buffer = new StringBuilder(result.line());
+                    }
+                    System.out.print(buffer.toString());
+                    if (result.run()) {
+                        System.out.println();
+                        break;
+                    }
+                    continue;
+                }
+
                 if (c == 127 || c == 8) {
                     if (buffer.length() > 0) {
                         buffer.deleteCharAt(buffer.length() - 1);
@@ -117,20 +240,25 @@ public class CurlBabyApp {
                         if (System.in.available() > 0) {
                             int arrowType = System.in.read();
 
-                            if (arrowType == 65 && !commandHistory.isEmpty()) { // UP
+                            // Counting loads the older history, so only once an arrow is pressed
+                            int historySize = commandHistory.getCommandCount();
+                            if (historyIndex < 0) {
+                                historyIndex = historySize;
+                            }
+                            if (arrowType == 65 && historySize > 0) { // UP
                                 if (historyIndex > 0) {
                                     historyIndex--;
                                     clearLine(buffer.length());
                                     buffer = new StringBuilder(commandHistory.get(historyIndex));
                                     System.out.print(buffer.toString());
                                 }
-                            } else if (arrowType == 66 && !commandHistory.isEmpty()) { // DOWN
-                                if (historyIndex < commandHistory.size() - 1) {
+                            } else if (arrowType == 66 && historySize > 0) { // DOWN
+                                if (historyIndex < historySize - 1) {
                                     historyIndex++;
                                     clearLine(buffer.length());
                                     buffer = new StringBuilder(commandHistory.get(historyIndex));
                                     System.out.print(buffer.toString());
-                                } else if (historyIndex == commandHistory.size() - 1) {
+                                } else if (historyIndex == historySize - 1) {
                                     historyIndex++;
                                     clearLine(buffer.length());
                                     buffer = new StringBuilder();
@@ -160,6 +288,21 @@ public class CurlBabyApp {
                 // If scanner also fails, return empty string
             }
             return "";
+        } finally {
+            setTerminalMode("icanon echo");
+        }
+    }
+
+    private static void setTerminalMode(String mode) {
+        if (System.getProperty("os.name").toLowerCase().contains("win")) {
+            return;
+        }
+        try {
+            new ProcessBuilder("/bin/sh", "-c", "stty " + mode + " </dev/tty").start().waitFor();
+        } catch (IOException e) {
+            // No stty: keys are then only seen after Enter
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -175,56 +318,16 @@ public class CurlBabyApp {
         uiManager.displayPrompt();
     }
 
-    private static void loadCommandHistory() {
-        File historyFile = new File(HISTORY_FILE);
-        if (historyFile.exists()) {
-            try (BufferedReader reader = new BufferedReader(new FileReader(historyFile))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    if (!line.trim().isEmpty()) {
-                        commandHistory.add(line);
-                    }
-                }
-                historyIndex = commandHistory.size();
-            } catch (IOException e) {
-                uiManager.displayWarning("Could not load command history: " + e.getMessage());
-            }
-        }
-    }
-
-    private static void saveCommandHistory() {
-        try {
-            File historyFile = new File(HISTORY_FILE);
-            if (!historyFile.exists()) {
-                historyFile.createNewFile();
-            }
-
-            // Keep only the last 100 commands
-            List<String> historyToSave = commandHistory;
-            if (commandHistory.size() > 100) {
-                historyToSave = commandHistory.subList(commandHistory.size() - 100, commandHistory.size());
-            }
-
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(historyFile))) {
-                for (String cmd : historyToSave) {
-                    writer.write(cmd);
-                    writer.newLine();
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error saving command history: " + e.getMessage());
-        }
-    }
-
     private static void printHistory() {
-        if (commandHistory.isEmpty()) {
+        List<String> history = commandHistory.getAllCommands();
+        if (history.isEmpty()) {
             uiManager.displayInfo("Command history is empty");
             return;
         }
 
         System.out.println("\n" + uiManager.getBoldYellow() + "Command History:" + uiManager.getReset());
-        for (int i = 0; i < commandHistory.size(); i++) {
-            System.out.printf("  %3d  %s\n", i + 1, commandHistory.get(i));
+        for (int i = 0; i < history.size(); i++) {
+            System.out.printf("  %3d  %s\n", i + 1, history.get(i));
         }
     }
 }
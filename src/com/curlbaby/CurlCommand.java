@@ -0,0 +1,780 @@
+package com.curlbaby;
+
+import com.curlbaby.HttpRequestHandler.Request;
+import com.curlbaby.HttpRequestHandler.Response;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLConnection;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A curl command line parsed into a Request plus the curl-only output options
+ * (-o, -w). Parsing is a single pass over the characters with no regular
+ * expressions, so thousands of lines pasted from scripts parse in milliseconds.
+ *
+ * Supported: -X, -H, -d/--data/--data-raw/--data-binary/--data-urlencode
+ * (with @file), -F/--form/--form-string, -G, -I, -u, -A, -e, -b, -o, -O,
+ * --compressed, -k, -L, -m/--max-time, --connect-timeout, -w and --url.
+ * Short options bundle as in curl (-sSL, -sXPOST). -m is a deadline for the
+ * whole transfer, body included. -s, -S, -v, -i, -f and friends are
+ * accepted and ignored. A lone --data-binary @file is not read here but
+ * streamed from disk on each send.
+ */
+public class CurlCommand {
+
+    private final Request request;
+    private final String outputFile;
+    private final String writeOut;
+
+    private CurlCommand(Request request, String outputFile, String writeOut) {
+        this.request = request;
+        this.outputFile = outputFile;
+        this.writeOut = writeOut;
+    }
+
+    public Request getRequest() {
+        return request;
+    }
+
+    /**
+     * File the body should be written to (-o / -O), or null for the terminal.
+     */
+    public String getOutputFile() {
+        return outputFile;
+    }
+
+    /**
+     * The -w format string, or null when none was given.
+     */
+    public String getWriteOut() {
+        return writeOut;
+    }
+
+    /**
+     * Parse a curl command line. The leading "curl" is optional.
+     *
+     * @throws IllegalArgumentException for syntax errors and unsupported options
+     * @throws IOException when a file referenced with @ cannot be read
+     */
+    public static CurlCommand parse(String commandLine) throws IOException {
+        List<String> tokens = tokenize(commandLine);
+        boolean leadingCurl = !tokens.isEmpty() && tokens.get(0).equals("curl");
+        List<String> args = expandShortOptions(tokens, leadingCurl ? 1 : 0);
+        int i = 0;
+
+        String url = null;
+        String method = null;
+        boolean head = false;
+        boolean dataAsQuery = false;
+        ByteArrayOutputStream data = null;
+        Path dataFile = null; // a lone --data-binary @file, streamed from disk when sent
+        MultipartBody form = null;
+        List<String[]> headers = new ArrayList<>();
+        String outputFile = null;
+        boolean remoteName = false;
+        String writeOut = null;
+        boolean followRedirects = false;
+        boolean insecure = false;
+        boolean compressed = false;
+        long maxTimeMillis = 0;
+        long connectTimeoutMillis = 0;
+
+        while (i < args.size()) {
+            String arg = args.get(i++);
+            if (arg.length() < 2 || arg.charAt(0) != '-') {
+                if (url != null) {
+                    throw new IllegalArgumentException("Only one URL per command is supported: " + arg);
+                }
+                url = arg;
+                continue;
+            }
+
+            String option = arg;
+            String value = null;
+            if (takesValue(option)) {
+                if (i >= args.size()) {
+                    throw new IllegalArgumentException("Option " + option + " needs a value");
+                }
+                value = args.get(i++);
+            }
+
+            switch (option) {
+                case "-X":
+                case "--request":
+                    method = value.toUpperCase();
+                    break;
+                case "-H":
+                case "--header":
+                    addHeaderLine(headers, value);
+                    break;
+                case "-d":
+                case "--data":
+                case "--data-ascii":
+                    data = appendData(loadDataFile(data, dataFile), value.startsWith("@")
+                            ? stripLineBreaks(readFile(value.substring(1)))
+                            : bytes(value));
+                    dataFile = null;
+                    break;
+                case "--data-binary":
+                    if (value.startsWith("@") && !value.equals("@-") && data == null && dataFile == null) {
+                        dataFile = WorkingDirectory.resolve(value.substring(1));
+                        if (!Files.isRegularFile(dataFile) || !Files.isReadable(dataFile)) {
+                            throw new NoSuchFileException(value.substring(1));
+                        }
+                    } else {
+                        data = appendData(loadDataFile(data, dataFile),
+                                value.startsWith("@") ? readFile(value.substring(1)) : bytes(value));
+                        dataFile = null;
+                    }
+                    break;
+                case "--data-raw":
+                    data = appendData(loadDataFile(data, dataFile), bytes(value));
+                    dataFile = null;
+                    break;
+                case "--data-urlencode":
+                    data = appendData(loadDataFile(data, dataFile), bytes(urlEncodeData(value)));
+                    dataFile = null;
+                    break;
+                case "-F":
+                case "--form":
+                    form = form != null ? form : new MultipartBody();
+                    addFormField(form, value, false);
+                    break;
+                case "--form-string":
+                    form = form != null ? form : new MultipartBody();
+                    addFormField(form, value, true);
+                    break;
+                case "-u":
+                case "--user":
+                    String credentials = value.indexOf(':') >= 0 ? value : value + ":";
+                    headers.add(new String[] {"Authorization",
+                            "Basic " + Base64.getEncoder().encodeToString(bytes(credentials))});
+                    break;
+                case "-A":
+                case "--user-agent":
+                    headers.add(new String[] {"User-Agent", value});
+                    break;
+                case "-e":
+                case "--referer":
+                    headers.add(new String[] {"Referer", value});
+                    break;
+                case "-b":
+                case "--cookie":
+                    if (value.indexOf('=') < 0) {
+                        throw new IllegalArgumentException("Cookie files are not supported, pass name=value pairs");
+                    }
+                    headers.add(new String[] {"Cookie", value});
+                    break;
+                case "-o":
+                case "--output":
+                    outputFile = value;
+                    break;
+                case "-O":
+                case "--remote-name":
+                    remoteName = true;
+                    break;
+                case "-w":
+                case "--write-out":
+                    writeOut = value.startsWith("@") ? new String(readFile(value.substring(1)), StandardCharsets.UTF_8) : value;
+                    break;
+                case "-m":
+                case "--max-time":
+                    maxTimeMillis = parseSeconds(option, value);
+                    break;
+                case "--connect-timeout":
+                    connectTimeoutMillis = parseSeconds(option, value);
+                    break;
+                case "--url":
+                    if (url != null) {
+                        throw new IllegalArgumentException("Only one URL per command is supported: " + value);
+                    }
+                    url = value;
+                    break;
+                case "-L":
+                case "--location":
+                    followRedirects = true;
+                    break;
+                case "-k":
+                case "--insecure":
+                    insecure = true;
+                    break;
+                case "-I":
+                case "--head":
+                    head = true;
+                    break;
+                case "-G":
+                case "--get":
+                    dataAsQuery = true;
+                    break;
+                case "--compressed":
+                    compressed = true;
+                    break;
+                case "-s":
+                case "--silent":
+                case "-S":
+                case "--show-error":
+                case "-v":
+                case "--verbose":
+                case "-i":
+                case "--include":
+                case "-f":
+                case "--fail":
+                case "-#":
+                case "--progress-bar":
+                case "--http1.1":
+                case "--http2":
+                case "--no-progress-meter":
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported curl option: " + option);
+            }
+        }
+
+        if (url == null) {
+            throw new IllegalArgumentException("No URL given");
+        }
+
+        if (dataAsQuery) {
+            data = loadDataFile(data, dataFile);
+            dataFile = null;
+        }
+        if (dataAsQuery && data != null) {
+            url += (url.indexOf('?') >= 0 ? "&" : "?") + data.toString(StandardCharsets.UTF_8);
+            data = null;
+        }
+
+        if (method == null) {
+            if (head) {
+                method = "HEAD";
+            } else if (data != null || dataFile != null || form != null) {
+                method = "POST";
+            } else {
+                method = "GET";
+            }
+        }
+
+        Request request = new Request(method, url);
+        for (String[] header : headers) {
+            mergeHeader(request, header[0], header[1]);
+        }
+
+        if (form != null) {
+            if (data != null || dataFile != null) {
+                throw new IllegalArgumentException("-F cannot be combined with -d");
+            }
+            request.setBody(form);
+            request.getHeaders().keySet().removeIf(name -> name.equalsIgnoreCase("Content-Type"));
+            request.addHeader("Content-Type", form.getContentType());
+        } else if (data != null || dataFile != null) {
+            if (dataFile != null) {
+                request.setBody(RequestBody.ofFile(dataFile));
+            } else {
+                request.setBody(data.toByteArray());
+            }
+            if (findHeader(request, "Content-Type") == null) {
+                request.addHeader("Content-Type", "application/x-www-form-urlencoded");
+            }
+        }
+
+        // Like curl, only --compressed asks for (and decodes) compressed bodies
+        request.setCompressed(compressed);
+        if (compressed) {
+            if (findHeader(request, "Accept-Encoding") == null) {
+                request.addHeader("Accept-Encoding", "gzip, deflate");
+            }
+        }
+        request.setFollowRedirects(followRedirects);
+        request.setInsecure(insecure);
+        request.setMaxTimeMillis(maxTimeMillis);
+        request.setConnectTimeoutMillis(connectTimeoutMillis);
+
+        if (remoteName && outputFile == null) {
+            outputFile = remoteFileName(url);
+        }
+        return new CurlCommand(request, outputFile, writeOut);
+    }
+
+    /**
+     * Whether parsing the command line reads stdin, through an @- argument
+     * (-d @-, --data-urlencode name@-, -w @-, ...). The daemon client sends
+     * its stdin along only then.
+     */
+    static boolean readsStandardInput(String line) {
+        try {
+            for (String token : tokenize(line)) {
+                if (token.endsWith("@-")) {
+                    return true;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Reported when the command itself is parsed
+        }
+        return false;
+    }
+
+    /**
+     * Split a command line the way a POSIX shell would: whitespace separates
+     * words, single quotes are literal, double quotes allow \" \\ \$ and \`
+     * escapes, $'...' understands C escapes, and a backslash before a line
+     * break joins the lines.
+     */
+    static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inToken = false;
+        int length = line.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = line.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                if (inToken) {
+                    tokens.add(current.toString());
+                    current.setLength(0);
+                    inToken = false;
+                }
+                i++;
+            } else if (c == '\\') {
+                if (i + 1 >= length) {
+                    i++;
+                } else if (line.charAt(i + 1) == '\n') {
+                    i += 2; // line continuation
+                } else if (line.charAt(i + 1) == '\r' && i + 2 < length && line.charAt(i + 2) == '\n') {
+                    i += 3;
+                } else {
+                    current.append(line.charAt(i + 1));
+                    inToken = true;
+                    i += 2;
+                }
+            } else if (c == '\'') {
+                int end = line.indexOf('\'', i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unterminated ' quote");
+                }
+                current.append(line, i + 1, end);
+                inToken = true;
+                i = end + 1;
+            } else if (c == '"') {
+                i = readDoubleQuoted(line, i + 1, current);
+                inToken = true;
+            } else if (c == '$' && i + 1 < length && line.charAt(i + 1) == '\'') {
+                i = readAnsiQuoted(line, i + 2, current);
+                inToken = true;
+            } else {
+                current.append(c);
+                inToken = true;
+                i++;
+            }
+        }
+        if (inToken) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    private static int readDoubleQuoted(String line, int i, StringBuilder out) {
+        int length = line.length();
+        while (i < length) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                return i + 1;
+            }
+            if (c == '\\' && i + 1 < length) {
+                char next = line.charAt(i + 1);
+                if (next == '"' || next == '\\' || next == '$' || next == '`') {
+                    out.append(next);
+                    i += 2;
+                    continue;
+                }
+                if (next == '\n') {
+                    i += 2;
+                    continue;
+                }
+            }
+            out.append(c);
+            i++;
+        }
+        throw new IllegalArgumentException("Unterminated \" quote");
+    }
+
+    private static int readAnsiQuoted(String line, int i, StringBuilder out) {
+        int length = line.length();
+        while (i < length) {
+            char c = line.charAt(i);
+            if (c == '\'') {
+                return i + 1;
+            }
+            if (c != '\\' || i + 1 >= length) {
+                out.append(c);
+                i++;
+                continue;
+            }
+            char next = line.charAt(i + 1);
+            i += 2;
+            switch (next) {
+                case 'n':
+                    out.append('\n');
+                    break;
+                case 't':
+                    out.append('\t');
+                    break;
+                case 'r':
+                    out.append('\r');
+                    break;
+                case '0':
+                    out.append('\0');
+                    break;
+                case 'x':
+                    int hexEnd = Math.min(i + 2, length);
+                    out.append((char) Integer.parseInt(line.substring(i, hexEnd), 16));
+                    i = hexEnd;
+                    break;
+                case 'u':
+                    int unicodeEnd = Math.min(i + 4, length);
+                    out.append((char) Integer.parseInt(line.substring(i, unicodeEnd), 16));
+                    i = unicodeEnd;
+                    break;
+                default:
+                    out.append(next); // \\ \' \" and anything unknown
+            }
+        }
+        throw new IllegalArgumentException("Unterminated $' quote");
+    }
+
+    /**
+     * Expand curl's -w variables for a completed request. Times are cumulative
+     * seconds from the start of the request, as curl reports them. Over plain
+     * http num_connects is the connection pool's estimate (see
+     * RequestTimings.isReuseEstimated()); over https it is observed.
+     */
+    public static String formatWriteOut(String format, Request request, Response response) {
+        RequestTimings timings = response.getTimings();
+        double namelookup = timings.getDnsMillis() / 1000.0;
+        double connect = namelookup + timings.getConnectMillis() / 1000.0;
+        double appconnect = timings.isTls() ? connect + timings.getTlsMillis() / 1000.0 : 0;
+        double total = timings.getTotalMillis() / 1000.0;
+
+        StringBuilder out = new StringBuilder(format.length() + 32);
+        int i = 0;
+        while (i < format.length()) {
+            char c = format.charAt(i);
+            if (c == '%' && format.startsWith("%{", i)) {
+                int end = format.indexOf('}', i + 2);
+                if (end > 0) {
+                    String variable = format.substring(i + 2, end);
+                    String expanded = writeOutVariable(variable, request, response,
+                            namelookup, connect, appconnect, total);
+                    out.append(expanded != null ? expanded : format.substring(i, end + 1));
+                    i = end + 1;
+                    continue;
+                }
+            } else if (c == '\\' && i + 1 < format.length()) {
+                char next = format.charAt(i + 1);
+                if (next == 'n' || next == 't' || next == 'r') {
+                    out.append(next == 'n' ? '\n' : next == 't' ? '\t' : '\r');
+                    i += 2;
+                    continue;
+                }
+            }
+            out.append(c);
+            i++;
+        }
+        return out.toString();
+    }
+
+    private static String writeOutVariable(String variable, Request request, Response response,
+            double namelookup, double connect, double appconnect, double total) {
+        RequestTimings timings = response.getTimings();
+        switch (variable) {
+            case "http_code":
+            case "response_code":
+                return String.format("%03d", response.getStatus());
+            case "http_version":
+                return response.getProtocol().replace("HTTP/", "");
+            case "content_type":
+                String contentType = response.getHeader("Content-Type");
+                return contentType != null ? contentType : "";
+            case "url_effective":
+            case "url":
+                return request.getUrl();
+            case "method":
+                return request.getMethod();
+            case "size_download":
+                return String.valueOf(response.getWireBodySize());
+            case "speed_download":
+                return String.format("%.0f", total > 0 ? response.getWireBodySize() / total : 0);
+            case "num_connects":
+                return timings.isMeasured() && !timings.isReused() ? "1" : "0";
+            case "time_namelookup":
+                return seconds(namelookup);
+            case "time_connect":
+                return seconds(connect);
+            case "time_appconnect":
+                return seconds(appconnect);
+            case "time_pretransfer":
+                return seconds(Math.max(connect, appconnect));
+            case "time_starttransfer":
+                return seconds(timings.getTimeToFirstByteMillis() / 1000.0);
+            case "time_total":
+                return seconds(total);
+            default:
+                return null;
+        }
+    }
+
+    private static String seconds(double value) {
+        return String.format("%.6f", value);
+    }
+
+    /**
+     * Split short options the way curl reads them: -sSL is -s -S -L, and the
+     * first letter that takes a value gets the rest of the token or else the
+     * next argument, so -sXPOST, -sX POST and -sH 'A: b' all work. Values are
+     * copied through untouched even when they start with '-'.
+     */
+    private static List<String> expandShortOptions(List<String> tokens, int from) {
+        List<String> args = new ArrayList<>(tokens.size());
+        for (int i = from; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (token.length() < 2 || token.charAt(0) != '-' || token.startsWith("--")) {
+                args.add(token);
+                if (takesValue(token) && i + 1 < tokens.size()) {
+                    args.add(tokens.get(++i));
+                }
+                continue;
+            }
+            for (int j = 1; j < token.length(); j++) {
+                String option = "-" + token.charAt(j);
+                args.add(option);
+                if (takesValue(option)) {
+                    if (j + 1 < token.length()) {
+                        args.add(token.substring(j + 1)); // -XPOST, -H'Accept: */*'
+                    } else if (i + 1 < tokens.size()) {
+                        args.add(tokens.get(++i));
+                    }
+                    break;
+                }
+            }
+        }
+        return args;
+    }
+
+    private static boolean takesValue(String option) {
+        switch (option) {
+            case "-X":
+            case "--request":
+            case "-H":
+            case "--header":
+            case "-d":
+            case "--data":
+            case "--data-ascii":
+            case "--data-binary":
+            case "--data-raw":
+            case "--data-urlencode":
+            case "-F":
+            case "--form":
+            case "--form-string":
+            case "-u":
+            case "--user":
+            case "-A":
+            case "--user-agent":
+            case "-e":
+            case "--referer":
+            case "-b":
+            case "--cookie":
+            case "-o":
+            case "--output":
+            case "-w":
+            case "--write-out":
+            case "-m":
+            case "--max-time":
+            case "--connect-timeout":
+            case "--url":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * "Name: value" adds a header, "Name:" removes a default one (skipped
+     * here) and "Name;" sends it with an empty value, as in curl.
+     */
+    private static void addHeaderLine(List<String[]> headers, String line) {
+        int colon = line.indexOf(':');
+        if (colon > 0) {
+            String value = line.substring(colon + 1).trim();
+            if (!value.isEmpty()) {
+                headers.add(new String[] {line.substring(0, colon).trim(), value});
+            }
+        } else if (line.endsWith(";")) {
+            headers.add(new String[] {line.substring(0, line.length() - 1).trim(), ""});
+        } else {
+            throw new IllegalArgumentException("Invalid header: " + line);
+        }
+    }
+
+    /**
+     * Repeated headers are folded into one, comma-separated (cookies with "; "),
+     * since Request keeps a single value per name.
+     */
+    private static void mergeHeader(Request request, String name, String value) {
+        String existing = findHeader(request, name);
+        if (existing == null) {
+            request.addHeader(name, value);
+            return;
+        }
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                header.setValue(existing + (name.equalsIgnoreCase("Cookie") ? "; " : ", ") + value);
+                return;
+            }
+        }
+    }
+
+    private static String findHeader(Request request, String name) {
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            if (header.getKey().equalsIgnoreCase(name)) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read a pending --data-binary @file into data once more data follows,
+     * since the parts are then joined in memory anyway.
+     */
+    private static ByteArrayOutputStream loadDataFile(ByteArrayOutputStream data, Path dataFile)
+            throws IOException {
+        return dataFile != null ? appendData(data, Files.readAllBytes(dataFile)) : data;
+    }
+
+    private static ByteArrayOutputStream appendData(ByteArrayOutputStream data, byte[] part) {
+        if (data == null) {
+            data = new ByteArrayOutputStream(part.length);
+        } else {
+            data.write('&');
+        }
+        data.writeBytes(part);
+        return data;
+    }
+
+    /**
+     * --data-urlencode forms: "content", "=content", "name=content",
+     * "@file" and "name@file".
+     */
+    private static String urlEncodeData(String value) throws IOException {
+        int equals = value.indexOf('=');
+        int at = value.indexOf('@');
+        if (equals >= 0 && (at < 0 || equals < at)) {
+            String name = value.substring(0, equals);
+            String encoded = urlEncode(value.substring(equals + 1));
+            return name.isEmpty() ? encoded : name + "=" + encoded;
+        }
+        if (at >= 0) {
+            String name = value.substring(0, at);
+            String encoded = urlEncode(new String(readFile(value.substring(at + 1)), StandardCharsets.UTF_8));
+            return name.isEmpty() ? encoded : name + "=" + encoded;
+        }
+        return urlEncode(value);
+    }
+
+    private static String urlEncode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static byte[] stripLineBreaks(byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length);
+        for (byte b : content) {
+            if (b != '\n' && b != '\r') {
+                out.write(b);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static long parseSeconds(String option, String value) {
+        try {
+            return (long) (Double.parseDouble(value) * 1000);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number of seconds for " + option + ": " + value);
+        }
+    }
+
+    private static String remoteFileName(String url) {
+        String path = url;
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        if (name.isEmpty() || path.endsWith("//" + name)) {
+            throw new IllegalArgumentException("Remote file name has no length: " + url);
+        }
+        return name;
+    }
+
+    private static byte[] readFile(String path) throws IOException {
+        if (path.equals("-")) {
+            return System.in.readAllBytes();
+        }
+        return Files.readAllBytes(WorkingDirectory.resolve(path));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Add one -F argument: name=value, name=@file[;type=...][;filename=...]
+     * or name=<file. Files are only checked here; their contents are
+     * streamed when the request is sent.
+     */
+    private static void addFormField(MultipartBody form, String field, boolean literal) throws IOException {
+        int equals = field.indexOf('=');
+        if (equals <= 0) {
+            throw new IllegalArgumentException("Illegal form field, expected name=content: " + field);
+        }
+        String name = field.substring(0, equals);
+        String content = field.substring(equals + 1);
+
+        if (literal || (!content.startsWith("@") && !content.startsWith("<"))) {
+            form.addField(name, content);
+            return;
+        }
+
+        String[] params = content.substring(1).split(";");
+        Path file = WorkingDirectory.resolve(params[0]);
+        String type = null;
+        String fileName = file.getFileName().toString();
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+            if (param.startsWith("type=")) {
+                type = param.substring(5);
+            } else if (param.startsWith("filename=")) {
+                fileName = param.substring(9);
+            }
+        }
+        if (Files.isDirectory(file) || !Files.isReadable(file)) {
+            throw new NoSuchFileException(params[0]);
+        }
+
+        if (content.startsWith("<")) {
+            form.addFieldFromFile(name, file, type); // file contents as a plain field
+        } else {
+            if (type == null) {
+                type = URLConnection.guessContentTypeFromName(fileName);
+            }
+            form.addFile(name, file, fileName, type != null ? type : "application/octet-stream");
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.curlbaby;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+
+/**
+ * Resident daemon that keeps one warm JVM (connection pool, JIT-compiled
+ * code, open database handles) behind a Unix domain socket, plus the thin
+ * client that forwards a single command to it.
+ *
+ * Protocol, one command per connection: the client sends its working
+ * directory and then the command line, each as an int length followed by
+ * UTF-8 bytes, and then its stdin the same way (empty unless the command
+ * reads @-). The daemon runs the command through
+ * CommandProcessor.processCommand with System.in reading that stdin and
+ * System.out and System.err redirected to the socket, sending frames of
+ * [type byte][int length][payload]: 'O' for stdout, 'E' for stderr and
+ * finally 'X' with the int exit status. Relative file names in the command
+ * resolve against the client's directory. Commands are run one at a time,
+ * since they share the processor, the process-wide standard streams and the
+ * working directory; the processor is non-interactive, so no command waits
+ * on a prompt.
+ */
+public final class Daemon {
+
+    private static final byte FRAME_STDOUT = 'O';
+    private static final byte FRAME_STDERR = 'E';
+    private static final byte FRAME_EXIT = 'X';
+    private static final String STOP_COMMAND = ":stop";
+    private static final int MAX_COMMAND_BYTES = 1 << 20;
+
+    private Daemon() {
+    }
+
+    public static Path defaultSocketPath() {
+        return Paths.get(System.getProperty("user.home"), ".curlbaby", "daemon.sock");
+    }
+
+    /**
+     * Serve commands on the socket until a stop command arrives.
+     */
+    public static void serve(Path socketPath, UIManager uiManager) throws IOException {
+        prepareSocketPath(socketPath);
+
+        CommandProcessor commandProcessor = new CommandProcessor(uiManager);
+        commandProcessor.setInteractive(false);
+
+        InputStream consoleIn = System.in;
+        PrintStream consoleOut = System.out;
+        PrintStream consoleErr = System.err;
+
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socketPath));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> deleteQuietly(socketPath)));
+            uiManager.displaySuccess("cUrlBaby daemon listening on " + socketPath);
+
+            while (true) {
+                try (SocketChannel client = server.accept()) {
+                    DataInputStream in = new DataInputStream(Channels.newInputStream(client));
+                    Path workingDirectory = Paths.get(readString(in));
+                    String command = readString(in);
+                    byte[] stdin = readBytes(in, Integer.MAX_VALUE);
+                    if (command.equals(STOP_COMMAND)) {
+                        sendExit(client, 0);
+                        uiManager.displayInfo("Daemon stopping");
+                        break;
+                    }
+                    WorkingDirectory.set(workingDirectory);
+                    // Never the daemon's own terminal, which nobody is watching
+                    System.setIn(new ByteArrayInputStream(stdin));
+                    runCommand(client, command, commandProcessor, consoleOut, consoleErr);
+                } catch (EOFException e) {
+                    // A liveness probe that connected and hung up
+                } catch (IOException e) {
+                    consoleErr.println("Daemon client error: " + e.getMessage());
+                } finally {
+                    WorkingDirectory.set(null);
+                    System.setIn(consoleIn);
+                    System.setOut(consoleOut);
+                    System.setErr(consoleErr);
+                }
+            }
+        } finally {
+            deleteQuietly(socketPath);
+        }
+    }
+
+    private static void runCommand(SocketChannel client, String command, CommandProcessor commandProcessor,
+            PrintStream consoleOut, PrintStream consoleErr) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client)));
+        PrintStream clientOut = new PrintStream(new FrameOutputStream(out, FRAME_STDOUT), true, StandardCharsets.UTF_8);
+        PrintStream clientErr = new PrintStream(new FrameOutputStream(out, FRAME_STDERR), true, StandardCharsets.UTF_8);
+
+        int errorsBefore = UIManager.getErrorCount();
+        int status;
+        String mainCommand = command.trim().split("\\s+", 2)[0].toLowerCase();
+        System.setOut(clientOut);
+        System.setErr(clientErr);
+        try {
+            if (mainCommand.equals("exit") || mainCommand.equals("quit")) {
+                // handleExit would take the whole daemon down
+                clientErr.println("The daemon keeps running; use 'curlbaby --stop-daemon' to stop it");
+                status = 1;
+            } else {
+                commandProcessor.processCommand(command);
+                status = UIManager.getErrorCount() > errorsBefore ? 1 : 0;
+            }
+        } catch (RuntimeException e) {
+            clientErr.println("Error: " + e.getMessage());
+            status = 1;
+        } finally {
+            System.setOut(consoleOut);
+            System.setErr(consoleErr);
+        }
+        clientOut.flush();
+        clientErr.flush();
+
+        synchronized (out) {
+            out.writeByte(FRAME_EXIT);
+            out.writeInt(4);
+            out.writeInt(status);
+            out.flush();
+        }
+    }
+
+    /**
+     * Send one command to a running daemon, copying its output to this
+     * process's stdout and stderr. When the command reads stdin (@-), all of
+     * this process's stdin is read first and sent along.
+     *
+     * @return the command's exit status
+     * @throws IOException if no daemon is listening on the socket
+     */
+    public static int forward(Path socketPath, String command) throws IOException {
+        // Read before connecting: the daemon serves one client at a time
+        byte[] stdin = CurlCommand.readsStandardInput(command) ? System.in.readAllBytes() : new byte[0];
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath))) {
+            DataOutputStream request = new DataOutputStream(Channels.newOutputStream(channel));
+            writeString(request, Paths.get("").toAbsolutePath().toString());
+            writeString(request, command);
+            request.writeInt(stdin.length);
+            request.write(stdin);
+            request.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            byte[] buffer = new byte[8192];
+            while (true) {
+                byte type;
+                try {
+                    type = in.readByte();
+                } catch (EOFException e) {
+                    System.err.println("Daemon closed the connection");
+                    return 1;
+                }
+                int length = in.readInt();
+                if (type == FRAME_EXIT) {
+                    System.out.flush();
+                    return in.readInt();
+                }
+                OutputStream target = type == FRAME_STDERR ? System.err : System.out;
+                while (length > 0) {
+                    int n = in.read(buffer, 0, Math.min(buffer.length, length));
+                    if (n < 0) {
+                        throw new EOFException("Truncated output from daemon");
+                    }
+                    target.write(buffer, 0, n);
+                    length -= n;
+                }
+                target.flush();
+            }
+        }
+    }
+
+    public static int stop(Path socketPath) throws IOException {
+        return forward(socketPath, STOP_COMMAND);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in, MAX_COMMAND_BYTES), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(DataInputStream in, int maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException("Invalid command length " + length);
+        }
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException("Truncated command");
+        }
+        return bytes;
+    }
+
+    private static void sendExit(SocketChannel client, int status) throws IOException {
+        DataOutputStream out = new DataOutputStream(Channels.newOutputStream(client));
+        out.writeByte(FRAME_EXIT);
+        out.writeInt(4);
+        out.writeInt(status);
+        out.flush();
+    }
+
+    /**
+     * Create the socket's directory readable only by the current user, and
+     * clear a socket file left behind by a daemon that did not shut down.
+     */
+    private static void prepareSocketPath(Path socketPath) throws IOException {
+        Path directory = socketPath.toAbsolutePath().getParent();
+        if (directory != null && !Files.exists(directory)) {
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                Files.createDirectories(directory,
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } else {
+                Files.createDirectories(directory);
+            }
+        }
+        if (Files.exists(socketPath)) {
+            if (isRunning(socketPath)) {
+                throw new IOException("A daemon is already running on " + socketPath);
+            }
+            Files.delete(socketPath);
+        }
+    }
+
+    /**
+     * Whether a daemon is accepting connections on the socket.
+     */
+    public static boolean isRunning(Path socketPath) {
+        try {
+            SocketChannel.open(UnixDomainSocketAddress.of(socketPath)).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // Nothing left to do at shutdown
+        }
+    }
+
+    /**
+     * Wraps everything written to it into frames of one type.
+     */
+    private static class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+        private final byte type;
+
+        FrameOutputStream(DataOutputStream out, byte type) {
+            this.out = out;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return;
+            }
+            synchronized (out) {
+                out.writeByte(type);
+                out.writeInt(length);
+                out.write(bytes, offset, length);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (out) {
+                out.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.curlbaby;
+
+import java.util.*;
+
+/**
+ * Trigram index over the command history, for reverse incremental search.
+ *
+ * Every entry gets a sequence number and each distinct command remembers the
+ * number of its latest use. For every case-folded trigram of a command, the
+ * posting list holds the sequence numbers it was used at, in ascending order,
+ * so a list read backwards yields the most recent commands first. A search
+ * walks the shortest posting list among the query's trigrams from the end,
+ * keeps the entries that are also in the other lists (binary searches over
+ * int arrays, no string access), skips uses that are no longer a command's
+ * latest, and confirms the rest with a substring check, stopping once enough
+ * matches are found.
+ *
+ * Trigrams found in more than 1/COMMON_FRACTION of entries (think "htt" or
+ * "get") lose their posting list: they narrow nothing down, and because they
+ * are common a backwards scan of all entries finds matches for them quickly.
+ */
+class HistoryIndex {
+
+    private static final int COMMON_FRACTION = 16;
+    private static final int COMMON_MIN_ENTRIES = 4096;
+    private static final int CANDIDATES_PER_RESULT = 4;
+
+    // Distinct commands by id, and a hash table of id + 1 for deduplication
+    private final List<String> commands = new ArrayList<>();
+    private int[] commandTable = new int[1 << 12];
+    private int[] latestSeq = new int[1024];
+
+    // Command id of every entry, by sequence number
+    private int[] seqCommand = new int[1024];
+    private int seqCount;
+
+    // Trigram -> slot, open addressing; a slot's list is null once common
+    private long[] trigramKeys = new long[1 << 12];
+    private int[] trigramSlots = new int[1 << 12];
+    private int trigramCount;
+    private int[][] postings = new int[1 << 10][];
+    private int[] postingSizes = new int[1 << 10];
+    private int[] trigramUses = new int[1 << 10];
+
+    void add(String command) {
+        int id = commandId(command);
+
+        int seq = seqCount++;
+        if (seq == seqCommand.length) {
+            seqCommand = Arrays.copyOf(seqCommand, seq * 2);
+        }
+        seqCommand[seq] = id;
+        latestSeq[id] = seq;
+
+        long previous = -1;
+        for (int i = 0; i + 3 <= command.length(); i++) {
+            long trigram = trigram(command, i);
+            if (trigram != previous) { // cheap dedupe for runs like "aaaa"
+                addPosting(trigram, seq);
+                previous = trigram;
+            }
+        }
+    }
+
+    int size() {
+        return seqCount;
+    }
+
+    /**
+     * Up to limit distinct commands containing query, ignoring case, best
+     * first: commands starting with the query before the rest, then most
+     * recently used first.
+     */
+    List<String> search(String query, int limit) {
+        List<String> results = new ArrayList<>();
+        if (query.isEmpty() || limit <= 0) {
+            return results;
+        }
+        String needle = query.toLowerCase(Locale.ROOT);
+        int wanted = limit * CANDIDATES_PER_RESULT;
+
+        // Posting lists of the query's indexed trigrams, shortest first
+        List<Integer> slots = new ArrayList<>();
+        for (int i = 0; i + 3 <= needle.length(); i++) {
+            int slot = findSlot(trigram(needle, i));
+            if (slot < 0) {
+                return results; // a trigram never seen: nothing can match
+            }
+            if (postings[slot] != null && !slots.contains(slot)) {
+                slots.add(slot);
+            }
+        }
+        slots.sort(Comparator.comparingInt(slot -> postingSizes[slot]));
+        int[] list = slots.isEmpty() ? null : postings[slots.get(0)];
+        int listSize = slots.isEmpty() ? seqCount : postingSizes[slots.get(0)];
+        int others = Math.max(0, slots.size() - 1);
+        int[] upperBounds = new int[others];
+        for (int k = 0; k < others; k++) {
+            upperBounds[k] = postingSizes[slots.get(k + 1)];
+        }
+
+        // Candidates in recency order; seq numbers are taken from the posting
+        // list when there is a selective one, otherwise every entry is scanned
+        List<String> prefixMatches = new ArrayList<>();
+        List<String> otherMatches = new ArrayList<>();
+        candidates:
+        for (int i = listSize - 1; i >= 0 && prefixMatches.size() + otherMatches.size() < wanted; i--) {
+            int seq = list != null ? list[i] : i;
+            for (int k = 0; k < others; k++) {
+                // Seqs only decrease, so each search can drop what lies above
+                int at = Arrays.binarySearch(postings[slots.get(k + 1)], 0, upperBounds[k], seq);
+                if (at < 0) {
+                    upperBounds[k] = -at - 1;
+                    continue candidates;
+                }
+                upperBounds[k] = at;
+            }
+            int id = seqCommand[seq];
+            if (latestSeq[id] != seq) {
+                continue; // used again later; that use is (or was) visited first
+            }
+            String command = commands.get(id);
+            int at = indexOfIgnoreCase(command, needle);
+            if (at == 0) {
+                prefixMatches.add(command);
+            } else if (at > 0) {
+                otherMatches.add(command);
+            }
+        }
+
+        for (String command : prefixMatches) {
+            if (results.size() == limit) {
+                return results;
+            }
+            results.add(command);
+        }
+        for (String command : otherMatches) {
+            if (results.size() == limit) {
+                break;
+            }
+            results.add(command);
+        }
+        return results;
+    }
+
+    private int commandId(String command) {
+        int mask = commandTable.length - 1;
+        int i = command.hashCode() & mask;
+        while (commandTable[i] != 0) {
+            int id = commandTable[i] - 1;
+            if (commands.get(id).equals(command)) {
+                return id;
+            }
+            i = (i + 1) & mask;
+        }
+
+        int id = commands.size();
+        commands.add(command);
+        if (id == latestSeq.length) {
+            latestSeq = Arrays.copyOf(latestSeq, id * 2);
+        }
+        commandTable[i] = id + 1;
+        if (commands.size() * 2 > commandTable.length) {
+            int[] table = new int[commandTable.length * 2];
+            int tableMask = table.length - 1;
+            for (int entry : commandTable) {
+                if (entry != 0) {
+                    int j = commands.get(entry - 1).hashCode() & tableMask;
+                    while (table[j] != 0) {
+                        j = (j + 1) & tableMask;
+                    }
+                    table[j] = entry;
+                }
+            }
+            commandTable = table;
+        }
+        return id;
+    }
+
+    private void addPosting(long trigram, int seq) {
+        int slot = findSlot(trigram);
+        if (slot < 0) {
+            slot = newSlot(trigram);
+        }
+        trigramUses[slot]++;
+
+        int[] list = postings[slot];
+        if (list == null) {
+            return; // common
+        }
+        if (seqCount >= COMMON_MIN_ENTRIES && trigramUses[slot] > seqCount / COMMON_FRACTION) {
+            postings[slot] = null;
+            postingSizes[slot] = 0;
+            return;
+        }
+        int size = postingSizes[slot];
+        if (size > 0 && list[size - 1] == seq) {
+            return; // trigram repeated within this command
+        }
+        if (size == list.length) {
+            list = Arrays.copyOf(list, size * 2);
+            postings[slot] = list;
+        }
+        list[size] = seq;
+        postingSizes[slot] = size + 1;
+    }
+
+    private int findSlot(long trigram) {
+        int mask = trigramKeys.length - 1;
+        for (int i = hash(trigram) & mask; ; i = (i + 1) & mask) {
+            if (trigramKeys[i] == 0) {
+                return -1;
+            }
+            if (trigramKeys[i] == trigram) {
+                return trigramSlots[i];
+            }
+        }
+    }
+
+    private int newSlot(long trigram) {
+        if ((trigramCount + 1) * 2 > trigramKeys.length) {
+            rehash();
+        }
+        int slot = trigramCount++;
+        if (slot == postings.length) {
+            postings = Arrays.copyOf(postings, slot * 2);
+            postingSizes = Arrays.copyOf(postingSizes, slot * 2);
+            trigramUses = Arrays.copyOf(trigramUses, slot * 2);
+        }
+        postings[slot] = new int[4];
+
+        int mask = trigramKeys.length - 1;
+        int i = hash(trigram) & mask;
+        while (trigramKeys[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        trigramKeys[i] = trigram;
+        trigramSlots[i] = slot;
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = trigramKeys;
+        int[] oldSlots = trigramSlots;
+        trigramKeys = new long[oldKeys.length * 2];
+        trigramSlots = new int[oldKeys.length * 2];
+        int mask = trigramKeys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != 0) {
+                int i = hash(oldKeys[j]) & mask;
+                while (trigramKeys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                trigramKeys[i] = oldKeys[j];
+                trigramSlots[i] = oldSlots[j];
+            }
+        }
+    }
+
+    /**
+     * Three case-folded chars packed into a long; never 0, the empty key.
+     */
+    private static long trigram(String text, int at) {
+        return (1L << 48)
+                | ((long) Character.toLowerCase(text.charAt(at)) << 32)
+                | ((long) Character.toLowerCase(text.charAt(at + 1)) << 16)
+                | Character.toLowerCase(text.charAt(at + 2));
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int indexOfIgnoreCase(String text, String lowerNeedle) {
+        int last = text.length() - lowerNeedle.length();
+        char first = lowerNeedle.charAt(0);
+        for (int i = 0; i <= last; i++) {
+            if (Character.toLowerCase(text.charAt(i)) == first
+                    && text.regionMatches(true, i, lowerNeedle, 0, lowerNeedle.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -1,41 +1,114 @@
 package com.curlbaby;
 
-import java.io.BufferedReader;
+import com.curlbaby.ApiCollectionManager.ApiGroup;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
 import java.net.URL;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
 
 public class HttpRequestHandler {
 
+    private static final ConnectionPool CONNECTION_POOL = new ConnectionPool();
+    private static final Set<String> RESTRICTED_HEADERS = Set.of(
+            "connection", "content-length", "expect", "host", "upgrade");
+    // Methods HttpURLConnection can send; anything else goes through HttpClient
+    private static final Set<String> URL_CONNECTION_METHODS = Set.of(
+            "GET", "POST", "HEAD", "OPTIONS", "PUT", "DELETE", "TRACE");
+    // Created on first use, one per redirect/TLS-verification combination and
+    // connect timeout (HttpClient only takes one when it is built); least
+    // recently used first, so the oldest goes once there are too many
+    private static final Map<Long, HttpClient> HTTP_CLIENTS = new LinkedHashMap<>(16, 0.75f, true);
+    private static final int MAX_HTTP_CLIENTS = 8;
+    private static SSLContext insecureSslContext;
+    private static final byte[] EMPTY_BODY = new byte[0];
+    private static final int STREAMING_CHUNK_SIZE = 64 * 1024;
+
+    // Runs blocking HttpURLConnection exchanges and body reads for executeAsync
+    private static final ExecutorService ASYNC_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "curlbaby-http");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Aborts exchanges that run past curl's --max-time
+    private static final ScheduledExecutorService DEADLINES = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "curlbaby-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final UIManager uiManager;
     private final JsonFormatter jsonFormatter;
+    private final ResponseStreamer responseStreamer;
     private final Scanner scanner;
     private final ApiCollectionManager apiCollectionManager;
     private Request lastExecutedRequest; // Store the last executed request
 
     private int timeout = 30000; // 30 seconds default
     private Map<String, String> defaultHeaders = new HashMap<>();
+    private Transport transport = Transport.HTTP1;
+    private boolean streamBodies = false;
+    private boolean cacheResponses = false;
+    private boolean compression = true; // ask for gzip/deflate unless a request says otherwise
+    private boolean interactive = true; // false in one-shot mode: never prompt
 
     // Constructor for CommandProcessor (without UIManager)
     public HttpRequestHandler() {
         this.uiManager = new UIManager();
         this.jsonFormatter = new JsonFormatter();
+        this.responseStreamer = new ResponseStreamer(jsonFormatter, uiManager);
         this.scanner = new Scanner(System.in);
-        this.apiCollectionManager = new ApiCollectionManager();
+        this.apiCollectionManager = ApiCollectionManager.getShared();
     }
 
     // Constructor for other classes (with UIManager)
     public HttpRequestHandler(UIManager uiManager) {
+        this(uiManager, ApiCollectionManager.getShared());
+    }
+
+    // Constructor sharing the caller's collection database
+    public HttpRequestHandler(UIManager uiManager, ApiCollectionManager apiCollectionManager) {
         this.uiManager = uiManager;
         this.jsonFormatter = new JsonFormatter();
+        this.responseStreamer = new ResponseStreamer(jsonFormatter, uiManager);
         this.scanner = new Scanner(System.in);
-        this.apiCollectionManager = new ApiCollectionManager();
+        this.apiCollectionManager = apiCollectionManager;
     }
 
     public void executeGetRequest(String urlString) {
@@ -44,6 +117,14 @@ public class HttpRequestHandler {
     }
 
     public void executePostRequest(String urlString) {
+        if (hasCurlOptions(urlString)) {
+            executeCurl("curl -X POST " + urlString);
+            return;
+        }
+        if (!interactive) {
+            uiManager.displayError("post without curl options prompts for the body; pass them, e.g. post <url> -d '{...}'");
+            return;
+        }
         Request request = new Request("POST", urlString);
 
         uiManager.displayInfo("Content-Type (default: application/json):");
@@ -83,6 +164,14 @@ public class HttpRequestHandler {
     }
 
     public void executePutRequest(String urlString) {
+        if (hasCurlOptions(urlString)) {
+            executeCurl("curl -X PUT " + urlString);
+            return;
+        }
+        if (!interactive) {
+            uiManager.displayError("put without curl options prompts for the body; pass them, e.g. put <url> -d '{...}'");
+            return;
+        }
         Request request = new Request("PUT", urlString);
 
         uiManager.displayInfo("PUT request follows the same flow as POST");
@@ -123,124 +212,797 @@ public class HttpRequestHandler {
         executeRequest(request);
     }
 
+    /**
+     * Whether a post/put argument carries curl options after the URL, e.g.
+     * "post <url> --data-binary @payload.bin -H 'Content-Type: ...'", in which
+     * case nothing is prompted for.
+     */
+    private static boolean hasCurlOptions(String argument) {
+        return CurlCommand.tokenize(argument).size() > 1;
+    }
+
     public void executeDeleteRequest(String urlString) {
         Request request = new Request("DELETE", urlString);
         executeRequest(request);
     }
 
     public void executeRequest(Request request) {
-        HttpURLConnection connection = null;
+        execute(request, null, null);
+    }
+
+    /**
+     * Parse a curl command line and run it through the same path as
+     * executeRequest, honouring -o and -w.
+     *
+     * @return the response, or null when the command was invalid or failed
+     */
+    public Response executeCurl(String curlCommand) {
+        CurlCommand curl;
         try {
-            String urlString = request.getUrl();
-            if (!urlString.startsWith("http://") && !urlString.startsWith("https://")) {
-                urlString = "http://" + urlString;
-                request.setUrl(urlString);
+            curl = CurlCommand.parse(curlCommand);
+        } catch (IllegalArgumentException | IOException e) {
+            uiManager.displayError("Invalid cURL command: " + e.getMessage());
+            return null;
+        }
+        return execute(curl.getRequest(), curl.getOutputFile(), curl.getWriteOut());
+    }
+
+    private Response execute(Request request, String outputFile, String writeOut) {
+        try {
+            normalizeUrl(request);
+
+            uiManager.displayInfo("🚀 Executing: [" + request.getMethod().toUpperCase() + "] " + request.getUrl()
+                    + (transport != Transport.HTTP1 ? " via " + transport.getName() : ""));
+
+            Response response;
+            if (outputFile != null) {
+                response = sendStreaming(request, (head, body) -> {
+                    printResponseHead(request, head);
+                    return responseStreamer.saveTo(outputFile, body);
+                });
+            } else if (streamBodies || responseStreamer.getOutputFile() != null) {
+                response = sendStreaming(request, (head, body) -> {
+                    printResponseHead(request, head);
+                    System.out.println("\n📄 Response Body:");
+                    return responseStreamer.stream(head, body);
+                });
+            } else {
+                response = cacheResponses && isCacheable(request) ? sendCached(request) : send(request);
+                printResponse(request, response);
+            }
+            printTimings(response);
+            if (writeOut != null) {
+                System.out.print(CurlCommand.formatWriteOut(writeOut, request, response));
+                System.out.flush();
             }
 
-            uiManager.displayInfo("🚀 Executing: [" + request.getMethod().toUpperCase() + "] " + urlString);
+            // Store the last executed request
+            lastExecutedRequest = request;
 
-            URL url = new URL(urlString);
-            connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod(request.getMethod());
-            connection.setConnectTimeout(timeout);
-            connection.setReadTimeout(timeout);
+            // After successful execution, offer to save the request
+            offerToSaveRequest();
+            return response;
 
-            // Add default headers
-            for (Map.Entry<String, String> header : defaultHeaders.entrySet()) {
-                connection.setRequestProperty(header.getKey(), header.getValue());
+        } catch (IOException e) {
+            uiManager.displayError("Error: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Send a request on the calling thread and return the response without
+     * printing anything. Safe to call from many threads at once.
+     */
+    public Response send(Request request) throws IOException {
+        return sendStreaming(request, null);
+    }
+
+    /**
+     * Send a request and hand the body to the sink as it arrives instead of
+     * buffering it. The returned Response carries no body bytes, only the
+     * number of bytes the sink consumed. A null sink buffers the body.
+     */
+    public Response sendStreaming(Request request, BodySink sink) throws IOException {
+        normalizeUrl(request);
+        return usesUrlConnection(request)
+                ? sendWithUrlConnection(request, sink)
+                : sendWithHttpClient(request, sink);
+    }
+
+    /**
+     * Send a GET through the response cache: answered from it while fresh,
+     * revalidated with the stored ETag / Last-Modified once stale, and stored
+     * afterwards when the response allows it.
+     */
+    private Response sendCached(Request request) throws IOException {
+        HttpResponseCache cache = HttpResponseCache.getShared();
+        Map<String, String> headers = requestHeaders(request);
+        boolean decoded = decodes(request);
+        HttpResponseCache.Lookup lookup = cache.lookup(request.getUrl(), decoded, headers);
+        if (lookup.fresh() != null) {
+            uiManager.displayInfo("💾 Served from cache (" + lookup.fresh().getBodySize() + " bytes)");
+            return lookup.fresh();
+        }
+        if (!lookup.needsRevalidation()) {
+            Response response = send(request);
+            cache.store(request.getUrl(), decoded, headers, response);
+            return response;
+        }
+
+        // The validators go on the wire only, not on the request that is shown and saved
+        Map<String, String> conditions = cache.conditionalHeaders(lookup);
+        request.getHeaders().putAll(conditions);
+        Response response;
+        try {
+            response = send(request);
+        } finally {
+            request.getHeaders().keySet().removeAll(conditions.keySet());
+        }
+        Response result = cache.revalidated(lookup, request.getUrl(), decoded, headers, response);
+        if (result != response) {
+            uiManager.displayInfo("💾 Not modified, served from cache (" + result.getBodySize() + " bytes)");
+        }
+        return result;
+    }
+
+    /**
+     * Only plain GETs are cached; requests that carry their own validators
+     * are left alone so the caller sees the server's 304.
+     */
+    private boolean isCacheable(Request request) {
+        if (!request.getMethod().equalsIgnoreCase("GET") || request.hasBody()) {
+            return false;
+        }
+        for (String name : requestHeaders(request).keySet()) {
+            if (name.equalsIgnoreCase("If-None-Match") || name.equalsIgnoreCase("If-Modified-Since")
+                    || name.equalsIgnoreCase("Range")) {
+                return false;
             }
+        }
+        return true;
+    }
 
-            // Add request-specific headers
-            for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
-                connection.setRequestProperty(header.getKey(), header.getValue());
+    /**
+     * Default headers overlaid with the request's own, as they are sent,
+     * plus Accept-Encoding when compressed bodies will be decoded.
+     */
+    private Map<String, String> requestHeaders(Request request) {
+        Map<String, String> headers = new LinkedHashMap<>(defaultHeaders);
+        headers.putAll(request.getHeaders());
+        if (decodes(request) && headers.keySet().stream().noneMatch(name -> name.equalsIgnoreCase("Accept-Encoding"))) {
+            headers.put("Accept-Encoding", "gzip, deflate");
+        }
+        return headers;
+    }
+
+    /**
+     * Whether gzip and deflate bodies are asked for and decoded: the request's
+     * own choice (curl --compressed or its absence) or 'set compression'.
+     */
+    private boolean decodes(Request request) {
+        return request.getCompressed() != null ? request.getCompressed() : compression;
+    }
+
+    /**
+     * Send a request without blocking the caller. Nothing is printed; pass the
+     * completed Response to printResponse() when it should be shown. The future
+     * completes exceptionally (with an IOException cause) on network errors.
+     */
+    public CompletableFuture<Response> executeAsync(Request request) {
+        normalizeUrl(request);
+
+        if (!usesUrlConnection(request)) {
+            HttpRequest httpRequest;
+            try {
+                httpRequest = buildHttpClientRequest(request);
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            RequestTimings timings = RequestTimings.start();
+            CompletableFuture<HttpResponse<InputStream>> exchange = getHttpClient(request, clientConnectTimeout(request))
+                    .sendAsync(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+            CompletableFuture<Response> result = exchange.thenApplyAsync(response -> {
+                try {
+                    return toResponse(request, response, timings, null);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, ASYNC_EXECUTOR);
+            if (request.getMaxTimeMillis() <= 0) {
+                return result;
             }
 
-            if (request.getMethod().equals("POST") || request.getMethod().equals("PUT")) {
-                connection.setDoOutput(true);
-                if (request.getBody() != null && !request.getBody().isEmpty()) {
-                    try (OutputStream os = connection.getOutputStream()) {
-                        byte[] input = request.getBody().getBytes("utf-8");
-                        os.write(input, 0, input.length);
-                    }
+            // The same --max-time deadline as sendWithHttpClient, body included
+            AtomicBoolean expired = new AtomicBoolean();
+            ScheduledFuture<?> deadline = scheduleDeadline(request, exchange, expired);
+            return result.handle((response, failure) -> {
+                deadline.cancel(false);
+                if (failure == null) {
+                    return response;
+                }
+                if (expired.get()) {
+                    throw new CompletionException(maxTimeExceeded(request));
                 }
+                throw failure instanceof CompletionException ? (CompletionException) failure
+                        : new CompletionException(failure);
+            });
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return sendWithUrlConnection(request, null);
+            } catch (IOException e) {
+                throw new CompletionException(e);
             }
+        }, ASYNC_EXECUTOR);
+    }
 
-            int status = connection.getResponseCode();
-            uiManager.displayInfo("📊 Status: " + status + " " + connection.getResponseMessage());
+    /**
+     * HTTP/1.1 requests go through HttpURLConnection unless it cannot express
+     * them: methods such as PATCH, or a body on GET/HEAD (which it would turn
+     * into a POST). Those are sent by HttpClient pinned to HTTP/1.1.
+     */
+    private boolean usesUrlConnection(Request request) {
+        if (transport != Transport.HTTP1) {
+            return false;
+        }
+        String method = request.getMethod().toUpperCase();
+        if (!URL_CONNECTION_METHODS.contains(method)) {
+            return false;
+        }
+        return !request.hasBody() || !(method.equals("GET") || method.equals("HEAD"));
+    }
+
+    /**
+     * The timeout for one request: curl's --max-time when given, else the handler default.
+     */
+    private int effectiveTimeout(Request request) {
+        return request.getMaxTimeMillis() > 0 ? (int) Math.min(request.getMaxTimeMillis(), Integer.MAX_VALUE) : timeout;
+    }
+
+    /**
+     * The connect timeout for one request: curl's --connect-timeout, capped by the request timeout.
+     */
+    private int connectTimeout(Request request) {
+        int requestTimeout = effectiveTimeout(request);
+        return request.getConnectTimeoutMillis() > 0
+                ? (int) Math.min(request.getConnectTimeoutMillis(), requestTimeout) : requestTimeout;
+    }
+
+    /**
+     * The connect timeout HttpClient is built with: --connect-timeout capped
+     * by the handler timeout. --max-time is left out so requests that differ
+     * only in it share a client and its HTTP/2 connections; its deadline
+     * covers the connect anyway.
+     */
+    private int clientConnectTimeout(Request request) {
+        return request.getConnectTimeoutMillis() > 0
+                ? (int) Math.min(request.getConnectTimeoutMillis(), timeout) : timeout;
+    }
 
-            System.out.println("\n📋 Request Details:");
-            System.out.println("  Method: " + request.getMethod());
-            System.out.println("  URL: " + request.getUrl());
+    void normalizeUrl(Request request) {
+        String urlString = request.getUrl();
+        if (!urlString.startsWith("http://") && !urlString.startsWith("https://")) {
+            // Bare hosts default to TLS only when HTTP/2 is negotiated through ALPN
+            request.setUrl((transport == Transport.H2 ? "https://" : "http://") + urlString);
+        }
+    }
+
+    /**
+     * Send a request over HttpURLConnection (HTTP/1.1, one request per socket,
+     * sockets reused through the keep-alive pool).
+     */
+    private Response sendWithUrlConnection(Request request, BodySink sink) throws IOException {
+        HttpURLConnection connection = null;
+        ConnectionPool.Lease lease = null;
+        boolean reusable = false;
+        long keepAliveMillis = -1;
+        RequestTimings timings = RequestTimings.start();
+        long started = System.nanoTime();
+        ScheduledFuture<?> deadline = null;
+        AtomicBoolean expired = new AtomicBoolean();
+        try {
+            URL url = new URL(request.getUrl());
+            int requestTimeout = effectiveTimeout(request);
+            lease = CONNECTION_POOL.acquire(url);
+            if (!lease.isReused()) {
+                resolveHost(url, timings);
+            }
+            connection = (HttpURLConnection) url.openConnection();
+            if (request.getMaxTimeMillis() > 0) {
+                // The timeouts below bound each connect and read; --max-time bounds the whole exchange
+                HttpURLConnection aborted = connection;
+                long remaining = request.getMaxTimeMillis() - (System.nanoTime() - started) / 1_000_000;
+                deadline = DEADLINES.schedule(() -> {
+                    expired.set(true);
+                    aborted.disconnect();
+                }, Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+            }
+            connection.setRequestMethod(request.getMethod());
+            connection.setConnectTimeout(connectTimeout(request));
+            connection.setReadTimeout(requestTimeout);
+            if (request.getFollowRedirects() != null) {
+                connection.setInstanceFollowRedirects(request.getFollowRedirects());
+            }
+            boolean https = connection instanceof HttpsURLConnection;
+            if (https) {
+                HttpsURLConnection httpsConnection = (HttpsURLConnection) connection;
+                if (request.isInsecure()) {
+                    httpsConnection.setSSLSocketFactory(
+                            TimingSSLSocketFactory.getShared(getInsecureSslContext().getSocketFactory()));
+                    httpsConnection.setHostnameVerifier((hostname, session) -> true);
+                } else {
+                    httpsConnection.setSSLSocketFactory(
+                            TimingSSLSocketFactory.getShared(httpsConnection.getSSLSocketFactory()));
+                }
+            }
 
-            for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
-                System.out.println("  Header: " + header.getKey() + ": " + header.getValue());
+            for (Map.Entry<String, String> header : requestHeaders(request).entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
             }
 
-            if (request.getBody() != null && !request.getBody().isEmpty()) {
-                System.out.println("\n📄 Request Body:");
-                if (request.getBody().trim().startsWith("{") || request.getBody().trim().startsWith("[")) {
-                    try {
-                        System.out.println(jsonFormatter.formatJson(request.getBody()));
-                    } catch (Exception e) {
-                        System.out.println(request.getBody());
+            boolean hasBody = request.hasBody();
+            RequestBody body = hasBody ? request.getRequestBody() : null;
+            if (hasBody) {
+                connection.setDoOutput(true);
+                if (body.isStreamed()) {
+                    // Otherwise the connection buffers the whole body to learn its length
+                    long length = body.contentLength();
+                    if (length >= 0) {
+                        connection.setFixedLengthStreamingMode(length);
+                    } else {
+                        connection.setChunkedStreamingMode(STREAMING_CHUNK_SIZE);
                     }
-                } else {
-                    System.out.println(request.getBody());
                 }
             }
 
-            System.out.println("\n📨 Response Headers:");
-            // Fixed: Replace lambda with traditional for loop for Java 8 compatibility
+            connect(connection, https, lease, timings);
+
+            if (hasBody) {
+                try (OutputStream os = connection.getOutputStream()) {
+                    body.writeTo(os);
+                }
+            }
+
+            int status = connection.getResponseCode();
+            timings.markFirstByte();
+
+            Map<String, List<String>> headers = new LinkedHashMap<>();
             for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
                 if (header.getKey() != null) {
-                    System.out.println("  " + header.getKey() + ": " + String.join(", ", header.getValue()));
+                    headers.put(header.getKey(), header.getValue());
                 }
             }
 
-            BufferedReader reader;
-            if (status > 299) {
-                reader = new BufferedReader(new InputStreamReader(connection.getErrorStream()));
+            // Reading the body to the end and closing the stream (instead of
+            // disconnecting) lets the JDK park the socket for the next request
+            InputStream bodyStream = status > 299 ? connection.getErrorStream() : connection.getInputStream();
+            Response response = readBody(request, new Response(status, connection.getResponseMessage(), "HTTP/1.1",
+                    headers, EMPTY_BODY, timings), bodyStream, sink);
+
+            reusable = !"close".equalsIgnoreCase(connection.getHeaderField("Connection"));
+            keepAliveMillis = ConnectionPool.parseKeepAliveTimeout(connection.getHeaderField("Keep-Alive"));
+
+            return response;
+        } catch (IOException e) {
+            if (expired.get()) {
+                throw maxTimeExceeded(request);
+            }
+            throw e;
+        } finally {
+            if (deadline != null) {
+                deadline.cancel(false);
+                if (expired.get()) {
+                    reusable = false; // the socket was torn down mid-exchange
+                }
+            }
+            if (connection != null && !reusable) {
+                // Only tear the socket down when it cannot go back to the pool
+                connection.disconnect();
+            }
+            if (lease != null) {
+                lease.release(reusable, keepAliveMillis);
+            }
+        }
+    }
+
+    /**
+     * Resolve the host ahead of the connect so the lookup can be timed on its
+     * own. The JDK caches the result, so the connect that follows does not
+     * resolve again.
+     */
+    private static void resolveHost(URL url, RequestTimings timings) {
+        try {
+            InetAddress.getAllByName(url.getHost());
+        } catch (UnknownHostException e) {
+            // Left for the connect to report, which also covers proxied requests
+        }
+        timings.markDnsResolved();
+    }
+
+    /**
+     * Open (or take from the keep-alive cache) the connection and record
+     * where the TCP connect ended and, for https, the TLS handshake. Only
+     * https shows whether a new connection was made; for plain http the
+     * pool's prediction stands in for it.
+     */
+    private static void connect(HttpURLConnection connection, boolean https, ConnectionPool.Lease lease,
+            RequestTimings timings) throws IOException {
+        if (https) {
+            TimingSSLSocketFactory.track(timings);
+            try {
+                connection.connect();
+            } finally {
+                TimingSSLSocketFactory.clear();
+            }
+            // The factory only sees new connections, so no mark means a cached socket
+            if (timings.isMeasured()) {
+                timings.markTlsHandshaken();
             } else {
-                reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
+                timings.markReused();
             }
+            lease.recordConnect(!timings.isReused(), true);
+        } else {
+            connection.connect();
+            if (lease.isReused()) {
+                timings.markReused();
+            } else {
+                timings.markConnected();
+            }
+            timings.markReuseEstimated();
+            lease.recordConnect(!lease.isReused(), false);
+        }
+    }
+
+    /**
+     * Send a request over the shared java.net.http.HttpClient. Concurrent
+     * requests to one origin are multiplexed as streams on a single HTTP/2
+     * connection; plain http URLs negotiate h2c with an Upgrade request.
+     */
+    private Response sendWithHttpClient(Request request, BodySink sink) throws IOException {
+        HttpRequest httpRequest = buildHttpClientRequest(request);
+        RequestTimings timings = RequestTimings.start();
+        if (request.getMaxTimeMillis() <= 0) {
+            try {
+                HttpResponse<InputStream> response = getHttpClient(request, clientConnectTimeout(request))
+                        .send(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+                return toResponse(request, response, timings, sink);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Request interrupted");
+            }
+        }
+
+        // The request timeout only runs until the headers; --max-time covers the body too
+        CompletableFuture<HttpResponse<InputStream>> exchange = getHttpClient(request, clientConnectTimeout(request))
+                .sendAsync(httpRequest, HttpResponse.BodyHandlers.ofInputStream());
+        AtomicBoolean expired = new AtomicBoolean();
+        ScheduledFuture<?> deadline = scheduleDeadline(request, exchange, expired);
+        try {
+            return toResponse(request, exchange.get(), timings, sink);
+        } catch (IOException | CancellationException e) {
+            if (expired.get()) {
+                throw maxTimeExceeded(request);
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException && cause.getMessage() != null ? (IOException) cause
+                    : new IOException(cause.getClass().getSimpleName(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Request interrupted");
+        } finally {
+            deadline.cancel(false);
+        }
+    }
+
+    /**
+     * At --max-time, cancel the exchange, or close the body stream when the
+     * headers are already in, to wake whoever is reading it.
+     */
+    private static ScheduledFuture<?> scheduleDeadline(Request request,
+            CompletableFuture<HttpResponse<InputStream>> exchange, AtomicBoolean expired) {
+        return DEADLINES.schedule(() -> {
+            expired.set(true);
+            if (!exchange.cancel(true) && !exchange.isCompletedExceptionally()) {
+                closeQuietly(exchange.join().body());
+            }
+        }, request.getMaxTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static SocketTimeoutException maxTimeExceeded(Request request) {
+        return new SocketTimeoutException("Operation timed out after " + request.getMaxTimeMillis()
+                + " ms (--max-time)");
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException e) {
+            // Only closed to wake a blocked reader
+        }
+    }
 
-            System.out.println("\n📄 Response Body:");
-            String line;
-            StringBuilder responseContent = new StringBuilder();
-            while ((line = reader.readLine()) != null) {
-                responseContent.append(line);
+    private HttpRequest buildHttpClientRequest(Request request) throws IOException {
+        HttpRequest.Builder builder;
+        try {
+            builder = HttpRequest.newBuilder(URI.create(request.getUrl()))
+                    .timeout(Duration.ofMillis(effectiveTimeout(request)));
+            if (transport == Transport.HTTP1) {
+                builder.version(HttpClient.Version.HTTP_1_1);
             }
-            reader.close();
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid URL: " + request.getUrl());
+        }
+
+        for (Map.Entry<String, String> header : requestHeaders(request).entrySet()) {
+            // The client manages connection-level headers itself and rejects them
+            if (!RESTRICTED_HEADERS.contains(header.getKey().toLowerCase())) {
+                builder.setHeader(header.getKey(), header.getValue());
+            }
+        }
+
+        String method = request.getMethod().toUpperCase();
+        if (request.hasBody()) {
+            builder.method(method, request.getRequestBody().publisher());
+        } else {
+            builder.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+        return builder.build();
+    }
 
-            String response = responseContent.toString();
-            if (response.trim().startsWith("{") || response.trim().startsWith("[")) {
+    private Response toResponse(Request request, HttpResponse<InputStream> response, RequestTimings timings,
+            BodySink sink) throws IOException {
+        // ofInputStream() completes as soon as the headers are in
+        timings.markFirstByte();
+        String protocol = response.version() == HttpClient.Version.HTTP_2 ? "HTTP/2" : "HTTP/1.1";
+        Response head = new Response(response.statusCode(), "", protocol,
+                new LinkedHashMap<>(response.headers().map()), EMPTY_BODY, timings);
+        return readBody(request, head, response.body(), sink);
+    }
+
+    /**
+     * The shared client for the request's redirect and TLS settings and the
+     * given connect timeout. Requests with different connect timeouts do not
+     * share HTTP/2 connections, as each client keeps its own, and only the
+     * MAX_HTTP_CLIENTS most recently used clients are kept.
+     */
+    private static synchronized HttpClient getHttpClient(Request request, int connectTimeoutMillis) {
+        boolean noRedirects = Boolean.FALSE.equals(request.getFollowRedirects());
+        int slot = (noRedirects ? 1 : 0) + (request.isInsecure() ? 2 : 0);
+        long key = ((long) connectTimeoutMillis << 2) | slot;
+        HttpClient client = HTTP_CLIENTS.get(key);
+        if (client == null) {
+            HttpClient.Builder builder = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .followRedirects(noRedirects ? HttpClient.Redirect.NEVER : HttpClient.Redirect.NORMAL)
+                    .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                    .executor(ASYNC_EXECUTOR);
+            if (request.isInsecure()) {
+                // Trusts any certificate; HttpClient still checks the host name
+                builder.sslContext(getInsecureSslContext());
+            }
+            client = builder.build();
+            HTTP_CLIENTS.put(key, client);
+            if (HTTP_CLIENTS.size() > MAX_HTTP_CLIENTS) {
+                Iterator<HttpClient> eldest = HTTP_CLIENTS.values().iterator();
+                retire(eldest.next());
+                eldest.remove();
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Let go of an evicted client. HttpClient is AutoCloseable from Java 21;
+     * close() waits for its exchanges to finish, so it runs off this thread.
+     * On older JDKs the client's selector thread exits once it is unreachable.
+     */
+    private static void retire(HttpClient client) {
+        if (client instanceof AutoCloseable closeable) {
+            ASYNC_EXECUTOR.execute(() -> {
                 try {
-                    String formatted = jsonFormatter.formatJson(response);
-                    System.out.println(formatted);
+                    closeable.close();
                 } catch (Exception e) {
-                    System.out.println(response);
+                    // Already closed or shutting down
                 }
-            } else {
-                System.out.println(response);
+            });
+        }
+    }
+
+    /**
+     * An SSLContext that accepts every certificate, for curl's -k.
+     */
+    private static synchronized SSLContext getInsecureSslContext() {
+        if (insecureSslContext == null) {
+            TrustManager trustAll = new X509TrustManager() {
+                @Override
+                public void checkClientTrusted(X509Certificate[] chain, String authType) {
+                }
+
+                @Override
+                public void checkServerTrusted(X509Certificate[] chain, String authType) {
+                }
+
+                @Override
+                public X509Certificate[] getAcceptedIssuers() {
+                    return new X509Certificate[0];
+                }
+            };
+            try {
+                SSLContext context = SSLContext.getInstance("TLS");
+                context.init(null, new TrustManager[] {trustAll}, new SecureRandom());
+                insecureSslContext = context;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Cannot create TLS context: " + e.getMessage(), e);
             }
+        }
+        return insecureSslContext;
+    }
 
-            // Store the last executed request
-            lastExecutedRequest = request;
+    /**
+     * Read the body either into memory or through the sink, always to the end
+     * so the connection can be reused, and complete the head with it.
+     */
+    private Response readBody(Request request, Response head, InputStream bodyStream, BodySink sink)
+            throws IOException {
+        Response response;
+        InputStream raw = bodyStream != null ? bodyStream : InputStream.nullInputStream();
+        String encoding = head.getHeader("Content-Encoding");
+        if (!decodes(request) || !ContentDecoder.supports(encoding) || head.getStatus() == 204
+                || head.getStatus() == 304) {
+            try (InputStream in = raw) {
+                response = sink != null ? head.withStreamedBody(sink.consume(head, in))
+                        : head.withBody(in.readAllBytes());
+            }
+        } else {
+            // Decode while the body streams in, counting what came over the wire
+            ContentDecoder.CountingInputStream wire = new ContentDecoder.CountingInputStream(raw);
+            try (InputStream in = ContentDecoder.decode(encoding, wire)) {
+                if (sink != null) {
+                    long decoded = sink.consume(head, in);
+                    response = head.withStreamedBody(decoded, wire.getCount());
+                } else {
+                    byte[] body = in.readAllBytes();
+                    response = head.withBody(body, wire.getCount());
+                }
+            }
+        }
+        head.getTimings().markEnd();
+        return response;
+    }
 
-            // After successful execution, offer to save the request
-            offerToSaveRequest();
+    /**
+     * Print a completed response in the standard status / headers / body layout
+     */
+    public void printResponse(Request request, Response response) {
+        printResponseHead(request, response);
 
-        } catch (IOException e) {
-            uiManager.displayError("Error: " + e.getMessage());
-        } finally {
-            if (connection != null) {
-                connection.disconnect();
+        System.out.println("\n📄 Response Body:");
+        byte[] body = response.getBodyBytes();
+        if (startsLikeJson(body) && jsonFormatter.isValidJson(body)) {
+            try {
+                // Token-stream the bytes straight to the terminal, no intermediate strings
+                jsonFormatter.formatJson(response.openBody(), System.out);
+                System.out.println();
+            } catch (IOException e) {
+                System.out.println(response.getBody());
             }
+        } else {
+            System.out.println(response.getBody());
+        }
+    }
+
+    /**
+     * Print the phase breakdown of a completed request
+     */
+    public void printTimings(Response response) {
+        System.out.println("\n⏱️  Timing: " + response.getTimings());
+        if (response.isDecoded()) {
+            long wire = response.getWireBodySize();
+            System.out.println("📦 Body: " + BenchmarkRunner.formatBytes(response.getBodySize()) + " decoded from "
+                    + BenchmarkRunner.formatBytes(wire) + " " + response.getHeader("Content-Encoding").trim()
+                    + (wire > 0 ? String.format(" (%.1fx)", (double) response.getBodySize() / wire) : ""));
         }
     }
 
+    private static boolean startsLikeJson(byte[] body) {
+        for (byte b : body) {
+            if (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                continue;
+            }
+            return b == '{' || b == '[';
+        }
+        return false;
+    }
+
+    private void printResponseHead(Request request, Response response) {
+        String statusLine = (response.getStatus() + " " + response.getMessage()).trim();
+        uiManager.displayInfo("📊 Status: " + statusLine
+                + (transport != Transport.HTTP1 ? " (" + response.getProtocol() + ")" : ""));
+
+        System.out.println("\n📋 Request Details:");
+        System.out.println("  Method: " + request.getMethod());
+        System.out.println("  URL: " + request.getUrl());
+
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            System.out.println("  Header: " + header.getKey() + ": " + header.getValue());
+        }
+
+        if (request.getBodyFile() != null) {
+            System.out.println("\n📄 Request Body: @" + request.getBodyFile());
+        } else if (request.getBody() != null && !request.getBody().isEmpty()) {
+            System.out.println("\n📄 Request Body:");
+            if (request.getBody().trim().startsWith("{") || request.getBody().trim().startsWith("[")) {
+                try {
+                    System.out.println(jsonFormatter.formatJson(request.getBody()));
+                } catch (Exception e) {
+                    System.out.println(request.getBody());
+                }
+            } else {
+                System.out.println(request.getBody());
+            }
+        }
+
+        System.out.println("\n📨 Response Headers:");
+        for (Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+            System.out.println("  " + header.getKey() + ": " + String.join(", ", header.getValue()));
+        }
+    }
+
+    public ResponseStreamer getResponseStreamer() {
+        return responseStreamer;
+    }
+
+    public void setStreamBodies(boolean streamBodies) {
+        this.streamBodies = streamBodies;
+    }
+
+    public boolean isStreamBodies() {
+        return streamBodies;
+    }
+
+    /**
+     * Turn the response cache for plain GETs on or off.
+     */
+    public void setCacheResponses(boolean cacheResponses) {
+        this.cacheResponses = cacheResponses;
+    }
+
+    public boolean isCacheResponses() {
+        return cacheResponses;
+    }
+
+    /**
+     * Ask for gzip/deflate bodies and decode them, for requests that do not
+     * decide for themselves (curl commands do, through --compressed).
+     */
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * Turn prompts (such as the offer to save a request) on or off.
+     */
+    public void setInteractive(boolean interactive) {
+        this.interactive = interactive;
+    }
+
+    public boolean isInteractive() {
+        return interactive;
+    }
+
+    public ConnectionPool getConnectionPool() {
+        return CONNECTION_POOL;
+    }
+
     private void offerToSaveRequest() {
-        if (lastExecutedRequest == null) {
+        if (lastExecutedRequest == null || !interactive) {
             return;
         }
 
@@ -257,7 +1019,7 @@ public class HttpRequestHandler {
             }
 
             // Fetch all groups and display them
-            List<Map<String, Object>> groups = apiCollectionManager.getAllGroups();
+            List<ApiGroup> groups = apiCollectionManager.getAllGroups();
             if (groups.isEmpty()) {
                 uiManager.displayInfo("No existing API groups. Creating a new one.");
                 createGroupAndSaveRequest(requestName);
@@ -267,8 +1029,8 @@ public class HttpRequestHandler {
             // Display groups
             uiManager.displayInfo("Select a group or create a new one:");
             int counter = 1;
-            for (Map<String, Object> group : groups) {
-                System.out.printf("  %d. %s\n", counter++, group.get("name"));
+            for (ApiGroup group : groups) {
+                System.out.printf("  %d. %s\n", counter++, group.name());
             }
             System.out.printf("  %d. Create new group\n", counter);
 
@@ -291,9 +1053,7 @@ public class HttpRequestHandler {
                 createGroupAndSaveRequest(requestName);
             } else {
                 // Save to existing group
-                Map<String, Object> selectedGroup = groups.get(choice - 1);
-                int groupId = (int) selectedGroup.get("id");
-                saveRequestToGroup(groupId, requestName);
+                saveRequestToGroup(groups.get(choice - 1).id(), requestName);
             }
         }
     }
@@ -327,19 +1087,6 @@ public class HttpRequestHandler {
             return;
         }
 
-        // Convert headers to JSON
-        StringBuilder headersJson = new StringBuilder("{");
-        boolean first = true;
-        for (Map.Entry<String, String> entry : lastExecutedRequest.getHeaders().entrySet()) {
-            if (!first) {
-                headersJson.append(", ");
-            }
-            headersJson.append("\"").append(entry.getKey()).append("\": \"")
-                    .append(entry.getValue()).append("\"");
-            first = false;
-        }
-        headersJson.append("}");
-
         uiManager.displayInfo("Description (optional):");
         String description = scanner.nextLine().trim();
 
@@ -348,8 +1095,9 @@ public class HttpRequestHandler {
                 requestName,
                 lastExecutedRequest.getMethod(),
                 lastExecutedRequest.getUrl(),
-                headersJson.toString(),
+                lastExecutedRequest.getHeaders(),
                 lastExecutedRequest.getBody(),
+                lastExecutedRequest.getBodyFile(),
                 description)) {
             uiManager.displaySuccess("API request saved: " + requestName);
         } else {
@@ -364,6 +1112,22 @@ public class HttpRequestHandler {
         this.timeout = timeoutSeconds * 1000; // Convert to milliseconds
     }
 
+    /**
+     * Select the transport used for subsequent requests (h1, h2 or h2c)
+     */
+    public boolean setTransport(String name) {
+        Transport selected = Transport.fromName(name);
+        if (selected == null) {
+            return false;
+        }
+        this.transport = selected;
+        return true;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
     /**
      * Set default headers
      */
@@ -378,23 +1142,20 @@ public class HttpRequestHandler {
         }
     }
 
-    /**
-     * Execute curl command
-     */
-    public String executeCurl(String curlCommand) throws Exception {
-        // Basic implementation - you can enhance this
-        uiManager.displayInfo("Parsing cURL command: " + curlCommand);
-
-        // For now, return a sample response
-        return "{ \"status\": \"success\", \"message\": \"cURL command executed\", \"command\": \"" + curlCommand + "\" }";
-    }
-
     public static class Request {
 
         private String method;
         private String url;
         private Map<String, String> headers;
         private String body;
+        private RequestBody binaryBody; // set instead of body for file uploads and forms
+
+        // Per-request overrides, used by curl commands
+        private Boolean followRedirects; // null keeps the transport default
+        private boolean insecure;
+        private Boolean compressed; // null follows the handler's 'set compression'
+        private long maxTimeMillis;
+        private long connectTimeoutMillis;
 
         public Request(String method, String url) {
             this.method = method;
@@ -427,8 +1188,280 @@ public class HttpRequestHandler {
             return body;
         }
 
+        /**
+         * Absolute path of the file a file body is read from, null for any
+         * other body.
+         */
+        public String getBodyFile() {
+            Path file = binaryBody != null ? binaryBody.file() : null;
+            return file != null ? file.toString() : null;
+        }
+
         public void setBody(String body) {
             this.body = body;
+            this.binaryBody = null;
+        }
+
+        /**
+         * Use raw bytes as the body. getBody() then returns null, since the
+         * content need not be text.
+         */
+        public void setBody(byte[] body) {
+            setBody(RequestBody.of(body));
+        }
+
+        /**
+         * Use a body that may be streamed from disk, such as a file upload.
+         */
+        public void setBody(RequestBody body) {
+            this.binaryBody = body;
+            this.body = null;
+        }
+
+        public boolean hasBody() {
+            if (binaryBody != null) {
+                try {
+                    return binaryBody.contentLength() != 0;
+                } catch (IOException e) {
+                    return true; // a missing file fails when the request is sent
+                }
+            }
+            return body != null && !body.isEmpty();
+        }
+
+        /**
+         * The body as sent on the wire: the binary body, or the text as
+         * UTF-8; null when there is none.
+         */
+        public RequestBody getRequestBody() {
+            if (binaryBody != null) {
+                return binaryBody;
+            }
+            return body != null ? RequestBody.of(body.getBytes(StandardCharsets.UTF_8)) : null;
+        }
+
+        public Boolean getFollowRedirects() {
+            return followRedirects;
+        }
+
+        public void setFollowRedirects(Boolean followRedirects) {
+            this.followRedirects = followRedirects;
+        }
+
+        /**
+         * Skip TLS certificate and host name verification (curl -k).
+         */
+        public boolean isInsecure() {
+            return insecure;
+        }
+
+        public void setInsecure(boolean insecure) {
+            this.insecure = insecure;
+        }
+
+        /**
+         * Whether to ask for and decode gzip and deflate bodies (curl
+         * --compressed); null leaves it to the handler.
+         */
+        public Boolean getCompressed() {
+            return compressed;
+        }
+
+        public void setCompressed(Boolean compressed) {
+            this.compressed = compressed;
+        }
+
+        /**
+         * Upper bound for the whole request in milliseconds, 0 for the handler timeout.
+         */
+        public long getMaxTimeMillis() {
+            return maxTimeMillis;
+        }
+
+        public void setMaxTimeMillis(long maxTimeMillis) {
+            this.maxTimeMillis = maxTimeMillis;
+        }
+
+        public long getConnectTimeoutMillis() {
+            return connectTimeoutMillis;
+        }
+
+        public void setConnectTimeoutMillis(long connectTimeoutMillis) {
+            this.connectTimeoutMillis = connectTimeoutMillis;
+        }
+    }
+
+    /**
+     * Consumes a response body while it is being received.
+     */
+    @FunctionalInterface
+    public interface BodySink {
+
+        /**
+         * @param head the status and headers; its body is empty
+         * @param body the raw body stream, closed by the caller afterwards
+         * @return the number of body bytes consumed
+         */
+        long consume(Response head, InputStream body) throws IOException;
+    }
+
+    public enum Transport {
+        HTTP1("h1"),
+        H2("h2"),
+        H2C("h2c");
+
+        private final String name;
+
+        Transport(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public static Transport fromName(String name) {
+            for (Transport transport : values()) {
+                if (transport.name.equalsIgnoreCase(name.trim())) {
+                    return transport;
+                }
+            }
+            return null;
+        }
+    }
+
+    public static class Response {
+
+        private final int status;
+        private final String message;
+        private final String protocol;
+        private final Map<String, List<String>> headers;
+        private final byte[] body;
+        private final long bodySize;
+        private final long wireBodySize; // -1 when no Content-Encoding was decoded
+        private final RequestTimings timings;
+
+        public Response(int status, String message, String protocol,
+                Map<String, List<String>> headers, byte[] body, RequestTimings timings) {
+            this(status, message, protocol, headers, body, body.length, -1, timings);
+        }
+
+        private Response(int status, String message, String protocol, Map<String, List<String>> headers,
+                byte[] body, long bodySize, long wireBodySize, RequestTimings timings) {
+            this.status = status;
+            this.message = message != null ? message : "";
+            this.protocol = protocol;
+            this.headers = headers;
+            this.body = body;
+            this.bodySize = bodySize;
+            this.wireBodySize = wireBodySize;
+            this.timings = timings;
+        }
+
+        Response withBody(byte[] body) {
+            return withBody(body, -1);
+        }
+
+        Response withBody(byte[] body, long wireBytes) {
+            return new Response(status, message, protocol, headers, body, body.length, wireBytes, timings);
+        }
+
+        Response withStreamedBody(long bytes) {
+            return withStreamedBody(bytes, -1);
+        }
+
+        Response withStreamedBody(long bytes, long wireBytes) {
+            return new Response(status, message, protocol, headers, EMPTY_BODY, bytes, wireBytes, timings);
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public String getProtocol() {
+            return protocol;
+        }
+
+        public Map<String, List<String>> getHeaders() {
+            return headers;
+        }
+
+        /**
+         * First value of a response header, matched case-insensitively
+         */
+        public String getHeader(String name) {
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                if (header.getKey().equalsIgnoreCase(name) && !header.getValue().isEmpty()) {
+                    return header.getValue().get(0);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Fresh stream over the body bytes; may be opened any number of times
+         */
+        public InputStream openBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        public byte[] getBodyBytes() {
+            return body;
+        }
+
+        /**
+         * Body length in bytes, including bodies that were streamed rather than kept
+         */
+        public long getBodySize() {
+            return bodySize;
+        }
+
+        public boolean isStreamed() {
+            return body.length != bodySize;
+        }
+
+        /**
+         * Body length as it came over the wire, before any Content-Encoding
+         * was decoded; equal to getBodySize() for bodies that were not.
+         */
+        public long getWireBodySize() {
+            return wireBodySize >= 0 ? wireBodySize : bodySize;
+        }
+
+        /**
+         * Whether a gzip or deflate Content-Encoding was decoded.
+         */
+        public boolean isDecoded() {
+            return wireBodySize >= 0;
+        }
+
+        /**
+         * Body decoded with the charset from Content-Type, UTF-8 by default
+         */
+        public String getBody() {
+            Charset charset = StandardCharsets.UTF_8;
+            String contentType = getHeader("Content-Type");
+            if (contentType != null) {
+                for (String param : contentType.split(";")) {
+                    String[] keyValue = param.trim().split("=", 2);
+                    if (keyValue.length == 2 && keyValue[0].equalsIgnoreCase("charset")) {
+                        try {
+                            charset = Charset.forName(keyValue[1].replace("\"", "").trim());
+                        } catch (IllegalArgumentException e) {
+                            // Unknown charset, keep UTF-8
+                        }
+                    }
+                }
+            }
+            return new String(body, charset);
+        }
+
+        public RequestTimings getTimings() {
+            return timings;
         }
     }
 }
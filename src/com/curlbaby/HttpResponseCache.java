@@ -0,0 +1,558 @@
+package com.curlbaby;
+
+import com.curlbaby.HttpRequestHandler.Response;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Private client-side cache for GET responses, following the HTTP caching
+ * rules (RFC 9111) that matter to a single user.
+ *
+ * Bodies live on disk under ~/.curlbaby/cache, one .body file per entry next
+ * to a small .meta file with the status, headers, validators and freshness
+ * lifetime. Only the metadata is kept in memory, in an access-ordered map
+ * that evicts the least recently used entries once the bodies add up to more
+ * than MAX_BYTES. The index is rebuilt from the .meta files on first use, so
+ * entries survive restarts.
+ *
+ * A fresh entry is served without touching the network. A stale one with an
+ * ETag or Last-Modified is revalidated with If-None-Match / If-Modified-Since,
+ * and a 304 answer refreshes the stored headers and serves the stored body.
+ */
+public class HttpResponseCache {
+
+    private static final long MAX_BYTES = 64L * 1024 * 1024;
+    private static final int MAX_ENTRIES = 1024;
+    private static final long MAX_HEURISTIC_MILLIS = 24L * 60 * 60 * 1000;
+    private static final int META_VERSION = 1;
+
+    private static HttpResponseCache shared;
+
+    private final Path directory;
+    private final Map<String, Entry> index = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean loaded;
+    private long totalBytes;
+
+    private long hits;
+    private long misses;
+    private long revalidations;
+    private long bytesSaved;
+
+    /**
+     * A stored response: everything but the body, which stays on disk.
+     */
+    record Entry(String key, String file, int status, String message, String protocol,
+            Map<String, List<String>> headers, Map<String, String> varyValues,
+            long storedAt, long ageMillis, long freshMillis, long bodySize) {
+
+        boolean isFresh(long now) {
+            return ageMillis + (now - storedAt) < freshMillis;
+        }
+
+        boolean hasValidator() {
+            return header(headers, "ETag") != null || header(headers, "Last-Modified") != null;
+        }
+    }
+
+    /**
+     * What lookup found for a request: a response to serve as is, or the
+     * stale entry to revalidate; both null on a miss.
+     */
+    public record Lookup(Response fresh, Entry stale) {
+
+        public boolean needsRevalidation() {
+            return stale != null;
+        }
+    }
+
+    public HttpResponseCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * The cache under ~/.curlbaby/cache, shared by every handler in the process.
+     */
+    public static synchronized HttpResponseCache getShared() {
+        if (shared == null) {
+            shared = new HttpResponseCache(Paths.get(System.getProperty("user.home"), ".curlbaby", "cache"));
+        }
+        return shared;
+    }
+
+    /**
+     * Find a stored response for a GET request. Returns an empty Lookup when
+     * the request must go to the network unconditionally.
+     *
+     * @param compressed whether the body will be decoded (--compressed), since
+     *                   stored bodies are kept the way the caller saw them
+     */
+    public synchronized Lookup lookup(String url, boolean compressed, Map<String, String> requestHeaders) {
+        String requestCacheControl = header(requestHeaders, "Cache-Control");
+        if (hasDirective(requestCacheControl, "no-store")) {
+            return new Lookup(null, null);
+        }
+        ensureLoaded();
+        Entry entry = index.get(key(url, compressed));
+        if (entry == null || !varyMatches(entry, requestHeaders)) {
+            misses++;
+            return new Lookup(null, null);
+        }
+
+        boolean forceRevalidate = hasDirective(requestCacheControl, "no-cache")
+                || "0".equals(directive(requestCacheControl, "max-age"))
+                || hasDirective(header(requestHeaders, "Pragma"), "no-cache");
+        if (!forceRevalidate && entry.isFresh(System.currentTimeMillis())) {
+            byte[] body = readBody(entry);
+            if (body != null) {
+                hits++;
+                bytesSaved += body.length;
+                RequestTimings timings = RequestTimings.start();
+                timings.markEnd();
+                return new Lookup(new Response(entry.status(), entry.message(), entry.protocol(),
+                        entry.headers(), body, timings), null);
+            }
+        } else if (entry.hasValidator()) {
+            return new Lookup(null, entry);
+        }
+        misses++;
+        return new Lookup(null, null);
+    }
+
+    /**
+     * The If-None-Match / If-Modified-Since headers that revalidate a stale entry.
+     */
+    public Map<String, String> conditionalHeaders(Lookup lookup) {
+        Map<String, String> conditions = new LinkedHashMap<>();
+        Entry entry = lookup.stale();
+        String etag = header(entry.headers(), "ETag");
+        String lastModified = header(entry.headers(), "Last-Modified");
+        if (etag != null) {
+            conditions.put("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            conditions.put("If-Modified-Since", lastModified);
+        }
+        return conditions;
+    }
+
+    /**
+     * Turn the network response to a revalidation into the response to show:
+     * on 304 the stored one with refreshed headers, otherwise the new one,
+     * which is stored in place of the old.
+     */
+    public synchronized Response revalidated(Lookup lookup, String url, boolean compressed,
+            Map<String, String> requestHeaders, Response response) {
+        Entry entry = lookup.stale();
+        if (response.getStatus() != 304) {
+            misses++;
+            store(url, compressed, requestHeaders, response);
+            return response;
+        }
+        byte[] body = readBody(entry);
+        if (body == null) {
+            misses++;
+            return response;
+        }
+
+        Map<String, List<String>> headers = new LinkedHashMap<>(entry.headers());
+        for (Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+            String name = header.getKey();
+            if (!name.equalsIgnoreCase("Content-Length") && !name.equalsIgnoreCase("Content-Encoding")) {
+                headers.keySet().removeIf(existing -> existing.equalsIgnoreCase(name));
+                headers.put(name, header.getValue());
+            }
+        }
+        revalidations++;
+        bytesSaved += body.length;
+        Response merged = new Response(entry.status(), entry.message(), entry.protocol(), headers, body,
+                response.getTimings());
+        long now = System.currentTimeMillis();
+        Entry refreshed = new Entry(entry.key(), entry.file(), entry.status(), entry.message(), entry.protocol(),
+                headers, entry.varyValues(), now, ageMillis(headers, now), freshnessMillis(headers), entry.bodySize());
+        try {
+            writeMeta(refreshed);
+            index.put(refreshed.key(), refreshed);
+        } catch (IOException e) {
+            remove(entry);
+        }
+        return merged;
+    }
+
+    /**
+     * Store a GET response if its status and Cache-Control allow it.
+     */
+    public synchronized void store(String url, boolean compressed, Map<String, String> requestHeaders,
+            Response response) {
+        ensureLoaded();
+        String key = key(url, compressed);
+        Entry previous = index.get(key);
+
+        Map<String, List<String>> headers = response.getHeaders();
+        String cacheControl = header(headers, "Cache-Control");
+        String vary = header(headers, "Vary");
+        long freshMillis = freshnessMillis(headers);
+        boolean storable = response.getStatus() == 200
+                && !response.isStreamed()
+                && !hasDirective(cacheControl, "no-store")
+                && !hasDirective(header(requestHeaders, "Cache-Control"), "no-store")
+                && (vary == null || !vary.trim().equals("*"))
+                && (freshMillis > 0 || header(headers, "ETag") != null || header(headers, "Last-Modified") != null)
+                && response.getBodyBytes().length <= MAX_BYTES / 4;
+        if (!storable) {
+            if (previous != null) {
+                remove(previous);
+            }
+            return;
+        }
+
+        Map<String, String> varyValues = new LinkedHashMap<>();
+        if (vary != null) {
+            for (String name : vary.split(",")) {
+                String value = header(requestHeaders, name.trim());
+                varyValues.put(name.trim().toLowerCase(Locale.ROOT), value != null ? value : "");
+            }
+        }
+
+        byte[] body = response.getBodyBytes();
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(key, fileName(key), response.getStatus(), response.getMessage(),
+                response.getProtocol(), new LinkedHashMap<>(headers), varyValues, now, ageMillis(headers, now),
+                freshMillis, body.length);
+        try {
+            Files.createDirectories(directory);
+            Path temp = directory.resolve(entry.file() + ".body.tmp");
+            Files.write(temp, body);
+            Files.move(temp, directory.resolve(entry.file() + ".body"), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            writeMeta(entry);
+        } catch (IOException e) {
+            System.err.println("Could not cache response: " + e.getMessage());
+            if (previous != null) {
+                remove(previous);
+            }
+            return;
+        }
+        if (previous != null) {
+            totalBytes -= previous.bodySize();
+        }
+        index.put(key, entry);
+        totalBytes += entry.bodySize();
+        evict();
+    }
+
+    /**
+     * Drop every entry and its files.
+     */
+    public synchronized void clear() {
+        ensureLoaded();
+        for (Entry entry : new ArrayList<>(index.values())) {
+            remove(entry);
+        }
+        hits = 0;
+        misses = 0;
+        revalidations = 0;
+        bytesSaved = 0;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getRevalidations() {
+        return revalidations;
+    }
+
+    public synchronized long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    public synchronized int getEntryCount() {
+        ensureLoaded();
+        return index.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        ensureLoaded();
+        return totalBytes;
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = index.values().iterator();
+        while ((totalBytes > MAX_BYTES || index.size() > MAX_ENTRIES) && eldest.hasNext()) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            totalBytes -= entry.bodySize();
+            deleteFiles(entry);
+        }
+    }
+
+    private void remove(Entry entry) {
+        if (index.remove(entry.key()) != null) {
+            totalBytes -= entry.bodySize();
+        }
+        deleteFiles(entry);
+    }
+
+    private void deleteFiles(Entry entry) {
+        try {
+            Files.deleteIfExists(directory.resolve(entry.file() + ".meta"));
+            Files.deleteIfExists(directory.resolve(entry.file() + ".body"));
+        } catch (IOException e) {
+            System.err.println("Could not delete cache entry: " + e.getMessage());
+        }
+    }
+
+    private byte[] readBody(Entry entry) {
+        try {
+            byte[] body = Files.readAllBytes(directory.resolve(entry.file() + ".body"));
+            if (body.length == entry.bodySize()) {
+                return body;
+            }
+        } catch (IOException e) {
+            // Deleted or unreadable; fall through and forget the entry
+        }
+        remove(entry);
+        return null;
+    }
+
+    /**
+     * Rebuild the index from the .meta files, oldest first so the LRU order
+     * roughly matches the order entries were stored in.
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Entry> entries = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.meta")) {
+            for (Path file : files) {
+                try {
+                    entries.add(readMeta(file));
+                } catch (IOException e) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read response cache: " + e.getMessage());
+        }
+        entries.sort(Comparator.comparingLong(Entry::storedAt));
+        for (Entry entry : entries) {
+            index.put(entry.key(), entry);
+            totalBytes += entry.bodySize();
+        }
+        evict();
+    }
+
+    private void writeMeta(Entry entry) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = directory.resolve(entry.file() + ".meta.tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(META_VERSION);
+            out.writeUTF(entry.key());
+            out.writeInt(entry.status());
+            out.writeUTF(entry.message());
+            out.writeUTF(entry.protocol());
+            out.writeLong(entry.storedAt());
+            out.writeLong(entry.ageMillis());
+            out.writeLong(entry.freshMillis());
+            out.writeLong(entry.bodySize());
+            out.writeInt(entry.varyValues().size());
+            for (Map.Entry<String, String> vary : entry.varyValues().entrySet()) {
+                out.writeUTF(vary.getKey());
+                out.writeUTF(vary.getValue());
+            }
+            out.writeInt(entry.headers().size());
+            for (Map.Entry<String, List<String>> header : entry.headers().entrySet()) {
+                out.writeUTF(header.getKey());
+                out.writeInt(header.getValue().size());
+                for (String value : header.getValue()) {
+                    out.writeUTF(value);
+                }
+            }
+        }
+        Files.move(temp, directory.resolve(entry.file() + ".meta"), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Entry readMeta(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != META_VERSION) {
+                throw new IOException("Unknown cache entry version");
+            }
+            String key = in.readUTF();
+            int status = in.readInt();
+            String message = in.readUTF();
+            String protocol = in.readUTF();
+            long storedAt = in.readLong();
+            long ageMillis = in.readLong();
+            long freshMillis = in.readLong();
+            long bodySize = in.readLong();
+            Map<String, String> varyValues = new LinkedHashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                varyValues.put(in.readUTF(), in.readUTF());
+            }
+            Map<String, List<String>> headers = new LinkedHashMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                String name = in.readUTF();
+                List<String> values = new ArrayList<>();
+                for (int j = in.readInt(); j > 0; j--) {
+                    values.add(in.readUTF());
+                }
+                headers.put(name, Collections.unmodifiableList(values));
+            }
+            return new Entry(key, fileName(key), status, message, protocol, headers, varyValues,
+                    storedAt, ageMillis, freshMillis, bodySize);
+        }
+    }
+
+    private static boolean varyMatches(Entry entry, Map<String, String> requestHeaders) {
+        for (Map.Entry<String, String> vary : entry.varyValues().entrySet()) {
+            String value = header(requestHeaders, vary.getKey());
+            if (!vary.getValue().equals(value != null ? value : "")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * How long a response stays fresh: max-age, else Expires minus Date, else
+     * a tenth of its age at the time it was sent (capped at a day) when it has
+     * a Last-Modified date. Zero means it has to be revalidated on every use.
+     */
+    static long freshnessMillis(Map<String, List<String>> headers) {
+        String cacheControl = header(headers, "Cache-Control");
+        if (hasDirective(cacheControl, "no-cache")) {
+            return 0;
+        }
+        String maxAge = directive(cacheControl, "max-age");
+        if (maxAge != null) {
+            try {
+                return Math.max(0, Long.parseLong(maxAge)) * 1000;
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        long date = parseDate(header(headers, "Date"), System.currentTimeMillis());
+        String expires = header(headers, "Expires");
+        if (expires != null) {
+            return Math.max(0, parseDate(expires, 0) - date);
+        }
+        long lastModified = parseDate(header(headers, "Last-Modified"), -1);
+        if (lastModified >= 0 && lastModified < date) {
+            return Math.min((date - lastModified) / 10, MAX_HEURISTIC_MILLIS);
+        }
+        return 0;
+    }
+
+    /**
+     * Age of a response when it arrived, from its Age header or the server's Date.
+     */
+    private static long ageMillis(Map<String, List<String>> headers, long now) {
+        long age = 0;
+        String ageHeader = header(headers, "Age");
+        if (ageHeader != null) {
+            try {
+                age = Long.parseLong(ageHeader.trim()) * 1000;
+            } catch (NumberFormatException e) {
+                // Ignore a malformed Age
+            }
+        }
+        long date = parseDate(header(headers, "Date"), now);
+        return Math.max(age, now - date);
+    }
+
+    private static long parseDate(String value, long fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return fallback;
+        }
+    }
+
+    private static boolean hasDirective(String cacheControl, String name) {
+        if (cacheControl == null) {
+            return false;
+        }
+        for (String part : cacheControl.split(",")) {
+            String directive = part.trim().toLowerCase(Locale.ROOT);
+            if (directive.equals(name) || directive.startsWith(name + "=")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String directive(String cacheControl, String name) {
+        if (cacheControl == null) {
+            return null;
+        }
+        for (String part : cacheControl.split(",")) {
+            String[] keyValue = part.trim().split("=", 2);
+            if (keyValue.length == 2 && keyValue[0].trim().equalsIgnoreCase(name)) {
+                return keyValue[1].trim().replace("\"", "");
+            }
+        }
+        return null;
+    }
+
+    private static String header(Map<String, ?> headers, String name) {
+        for (Map.Entry<String, ?> header : headers.entrySet()) {
+            if (header.getKey() != null && header.getKey().equalsIgnoreCase(name)) {
+                Object value = header.getValue();
+                if (value instanceof List<?> values) {
+                    return values.isEmpty() ? null : String.join(", ", values.stream().map(String::valueOf).toList());
+                }
+                return (String) value;
+            }
+        }
+        return null;
+    }
+
+    private static String key(String url, boolean compressed) {
+        return "GET " + url + (compressed ? " compressed" : "");
+    }
+
+    private static String fileName(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,40 +1,243 @@
 package com.curlbaby;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import java.io.*;
 import java.util.Scanner;
 
 public class JsonFormatter {
 
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
-    private static final ObjectWriter PRETTY_PRINTER = OBJECT_MAPPER.writerWithDefaultPrettyPrinter();
-    private static final ObjectWriter COMPACT_WRITER = OBJECT_MAPPER.writer();
+    /**
+     * Holds the Jackson factory so Jackson is only loaded the first time JSON
+     * is actually parsed, not whenever a JsonFormatter is created.
+     */
+    private static final class Jackson {
+        static final JsonFactory FACTORY = new JsonFactory();
+    }
 
+    /**
+     * Pretty-print a JSON string. Tokens are piped straight from the parser to
+     * the generator, so no Map/List tree is built and key order, duplicate keys
+     * and number formatting are preserved exactly.
+     */
     public String formatJson(String json) {
-        try {
-            Object jsonObj = OBJECT_MAPPER.readValue(json, Object.class);
-            return PRETTY_PRINTER.writeValueAsString(jsonObj);
-        } catch (Exception e) {
-            return "Invalid JSON: " + e.getMessage();
-        }
+        return transcode(json, true);
     }
 
     public String compactJson(String json) {
-        try {
-            Object jsonObj = OBJECT_MAPPER.readValue(json, Object.class);
-            return COMPACT_WRITER.writeValueAsString(jsonObj);
-        } catch (Exception e) {
+        return transcode(json, false);
+    }
+
+    /**
+     * Pretty-print JSON from a byte stream to a writer, token by token.
+     *
+     * @return the number of bytes read from the input
+     * @throws JsonProcessingException if the input is not valid JSON; everything
+     *         before the error has already been written
+     */
+    public long formatJson(InputStream in, Writer out) throws IOException {
+        return transcode(in, Jackson.FACTORY.createGenerator(out), true);
+    }
+
+    /**
+     * Compact JSON from a byte stream to a writer, token by token.
+     *
+     * @return the number of bytes read from the input
+     * @throws JsonProcessingException if the input is not valid JSON
+     */
+    public long compactJson(InputStream in, Writer out) throws IOException {
+        return transcode(in, Jackson.FACTORY.createGenerator(out), false);
+    }
+
+    /**
+     * Pretty-print JSON incrementally from a byte stream, writing each token
+     * as soon as it has been parsed. Output is flushed whenever the parser has
+     * to wait for more input, so a slow or huge body shows up while it is
+     * still arriving. Unlike the Writer variant this never fails on bad input:
+     * if the input stops being valid JSON, the remainder is copied through
+     * unchanged.
+     *
+     * @return the number of bytes read from the input
+     */
+    public long formatJson(InputStream in, OutputStream out) throws IOException {
+        CountingInputStream counted = new CountingInputStream(in);
+        JsonGenerator generator = newGenerator(Jackson.FACTORY.createGenerator(out, JsonEncoding.UTF8), true);
+        counted.flushBeforeRead(generator);
+
+        try (JsonParser parser = newParser(counted)) {
+            try {
+                copyTokens(parser, generator);
+                generator.flush();
+            } catch (JsonProcessingException e) {
+                // Not (or no longer) JSON: emit what the parser buffered, then the rest as-is
+                generator.flush();
+                out.write('\n');
+                parser.releaseBuffered(out);
+                counted.transferTo(out);
+            }
+        }
+        out.flush();
+        return counted.getCount();
+    }
+
+    private String transcode(String json, boolean pretty) {
+        StringWriter out = new StringWriter(json.length() + (pretty ? json.length() / 2 : 0));
+        try (JsonParser parser = Jackson.FACTORY.createParser(json);
+                JsonGenerator generator = newGenerator(Jackson.FACTORY.createGenerator(out), pretty)) {
+            if (copyTokens(parser, generator) == 0) {
+                return "Invalid JSON: No content to map due to end-of-input";
+            }
+        } catch (IOException e) {
             return "Invalid JSON: " + e.getMessage();
         }
+        return out.toString();
+    }
+
+    private long transcode(InputStream in, JsonGenerator target, boolean pretty) throws IOException {
+        CountingInputStream counted = new CountingInputStream(in);
+        JsonGenerator generator = newGenerator(target, pretty);
+        counted.flushBeforeRead(generator);
+        try (JsonParser parser = newParser(counted)) {
+            copyTokens(parser, generator);
+        } finally {
+            generator.flush();
+        }
+        return counted.getCount();
+    }
+
+    /**
+     * Copy every token from parser to generator and return how many were copied.
+     */
+    private static long copyTokens(JsonParser parser, JsonGenerator generator) throws IOException {
+        long tokens = 0;
+        while (parser.nextToken() != null) {
+            generator.copyCurrentEvent(parser);
+            tokens++;
+        }
+        return tokens;
+    }
+
+    private static JsonParser newParser(InputStream in) throws IOException {
+        JsonParser parser = Jackson.FACTORY.createParser(in);
+        parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        return parser;
+    }
+
+    private static JsonGenerator newGenerator(JsonGenerator generator, boolean pretty) {
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        if (pretty) {
+            generator.useDefaultPrettyPrinter();
+        }
+        return generator;
     }
 
     public boolean isValidJson(String json) {
+        return json != null && validate(json).isValid();
+    }
+
+    public boolean isValidJson(byte[] json) {
+        return json != null && validate(new ByteArrayInputStream(json)).isValid();
+    }
+
+    public Validation validate(String json) {
+        try (JsonParser parser = Jackson.FACTORY.createParser(json)) {
+            return validate(parser);
+        } catch (IOException e) {
+            return Validation.failure(e);
+        }
+    }
+
+    /**
+     * Check that a byte stream holds exactly one JSON document. The parser only
+     * walks tokens and skips over containers and strings without decoding them,
+     * so nothing is allocated per value and the stream is read once.
+     */
+    public Validation validate(InputStream in) {
+        try (JsonParser parser = newParser(in)) {
+            return validate(parser);
+        } catch (IOException e) {
+            return Validation.failure(e);
+        }
+    }
+
+    private static Validation validate(JsonParser parser) throws IOException {
         try {
-            OBJECT_MAPPER.readTree(json);
-            return true;
-        } catch (Exception e) {
-            return false;
+            if (parser.nextToken() == null) {
+                return new Validation(false, 1, 1, "No content to map due to end-of-input");
+            }
+            parser.skipChildren();
+            if (parser.nextToken() != null) {
+                JsonLocation location = parser.currentTokenLocation();
+                return new Validation(false, location.getLineNr(), location.getColumnNr(),
+                        "Unexpected content after the end of the JSON value");
+            }
+            return Validation.VALID;
+        } catch (JsonProcessingException e) {
+            return Validation.failure(e);
+        }
+    }
+
+    /**
+     * Outcome of {@link #validate}: on failure, where the first error is and why.
+     */
+    public static final class Validation {
+
+        static final Validation VALID = new Validation(true, 0, 0, null);
+
+        private final boolean valid;
+        private final int line;
+        private final int column;
+        private final String message;
+
+        Validation(boolean valid, int line, int column, String message) {
+            this.valid = valid;
+            this.line = line;
+            this.column = column;
+            this.message = message;
+        }
+
+        static Validation failure(IOException e) {
+            if (e instanceof JsonProcessingException) {
+                JsonProcessingException jsonError = (JsonProcessingException) e;
+                JsonLocation location = jsonError.getLocation();
+                if (location != null) {
+                    return new Validation(false, location.getLineNr(), location.getColumnNr(),
+                            jsonError.getOriginalMessage());
+                }
+                return new Validation(false, -1, -1, jsonError.getOriginalMessage());
+            }
+            return new Validation(false, -1, -1, e.getMessage());
+        }
+
+        public boolean isValid() {
+            return valid;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            if (valid) {
+                return "Valid JSON";
+            }
+            if (line < 0) {
+                return "Invalid JSON: " + message;
+            }
+            return "Invalid JSON at line " + line + ", column " + column + ": " + message;
         }
     }
 
@@ -96,4 +299,51 @@ public class JsonFormatter {
             return json;
         }
     }
+
+    /**
+     * Counts bytes read and flushes the generator before blocking on new input.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+        private Flushable flushable;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        void flushBeforeRead(Flushable flushable) {
+            this.flushable = flushable;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            flushPending();
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            flushPending();
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        private void flushPending() throws IOException {
+            if (flushable != null) {
+                flushable.flush();
+            }
+        }
+    }
 }
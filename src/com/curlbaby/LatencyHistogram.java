@@ -0,0 +1,99 @@
+package com.curlbaby;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * High-dynamic-range latency histogram in the style of HdrHistogram.
+ *
+ * Values are recorded in microseconds. The first bucket holds every value
+ * below 2048 at 1 µs resolution; each following bucket covers the next power
+ * of two with 1024 linear sub-buckets, so any recorded value is reproduced
+ * with better than 0.1% error (three significant digits) from 1 µs up to
+ * about 19 hours, in a fixed 230 KB of counters. Recording is lock-free and
+ * safe from any number of threads.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 11;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;      // 2048
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT / 2;      // 1024
+    private static final int MAX_EXPONENT = 26;                           // 2048 << 25 µs ≈ 19 h
+
+    public static final long MAX_TRACKABLE_MICROS = ((long) SUB_BUCKET_COUNT << (MAX_EXPONENT - 1)) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(SUB_BUCKET_COUNT + (MAX_EXPONENT - 1) * SUB_BUCKET_HALF);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong minMicros = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        recordMicros(Math.max(0, nanos / 1000));
+    }
+
+    public void recordMicros(long micros) {
+        long value = Math.min(Math.max(micros, 0), MAX_TRACKABLE_MICROS);
+        counts.incrementAndGet(indexOf(value));
+        totalCount.incrementAndGet();
+        totalMicros.addAndGet(value);
+        minMicros.accumulateAndGet(value, Math::min);
+        maxMicros.accumulateAndGet(value, Math::max);
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public long getMinMicros() {
+        return totalCount.get() == 0 ? 0 : minMicros.get();
+    }
+
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    public double getMeanMicros() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalMicros.get() / count;
+    }
+
+    /**
+     * The value below which the given percentage of recorded values fall,
+     * reported as the highest value equivalent to its bucket (as HdrHistogram does).
+     */
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        // Shift so the value lands in [1024, 2048) of its power-of-two bucket
+        int exponent = (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+        int subBucket = (int) (value >>> exponent);
+        return SUB_BUCKET_COUNT + (exponent - 1) * SUB_BUCKET_HALF + (subBucket - SUB_BUCKET_HALF);
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int exponent = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        return ((subBucket + 1) << exponent) - 1;
+    }
+}
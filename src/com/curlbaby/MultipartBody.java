@@ -0,0 +1,171 @@
+package com.curlbaby;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.http.HttpRequest;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A multipart/form-data body (RFC 7578) whose file parts are streamed from
+ * disk when it is written, so only the part headers are ever held in memory.
+ *
+ * The length is the sum of the part headers and the file sizes taken when
+ * the send starts, which lets uploads go out with a Content-Length; a part
+ * read from something other than a regular file (a pipe, say) makes the
+ * length unknown and the body is sent chunked instead.
+ */
+final class MultipartBody extends RequestBody {
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private final String boundary = "------------------------"
+            + Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final List<Part> parts = new ArrayList<>();
+
+    /**
+     * A part header and its content: bytes in memory or a file.
+     */
+    private record Part(byte[] head, byte[] data, Path file) {
+
+        long length() throws IOException {
+            if (data != null) {
+                return data.length;
+            }
+            return Files.isRegularFile(file) ? Files.size(file) : -1;
+        }
+    }
+
+    String getContentType() {
+        return "multipart/form-data; boundary=" + boundary;
+    }
+
+    /**
+     * A plain name=value field.
+     */
+    void addField(String name, String value) {
+        parts.add(new Part(head(name, null, null), value.getBytes(StandardCharsets.UTF_8), null));
+    }
+
+    /**
+     * A field whose value is read from file, without a filename (curl's
+     * -F name=<file).
+     */
+    void addFieldFromFile(String name, Path file, String type) {
+        parts.add(new Part(head(name, null, type), null, file));
+    }
+
+    /**
+     * A file upload (curl's -F name=@file).
+     */
+    void addFile(String name, Path file, String fileName, String type) {
+        parts.add(new Part(head(name, fileName, type), null, file));
+    }
+
+    private byte[] head(String name, String fileName, String type) {
+        StringBuilder head = new StringBuilder("--").append(boundary).append("\r\n")
+                .append("Content-Disposition: form-data; name=\"").append(escape(name)).append('"');
+        if (fileName != null) {
+            head.append("; filename=\"").append(escape(fileName)).append('"');
+        }
+        head.append("\r\n");
+        if (type != null) {
+            head.append("Content-Type: ").append(type).append("\r\n");
+        }
+        head.append("\r\n");
+        return head.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Quotes, CR and LF percent-encoded, as browsers do in form-data names.
+     */
+    private static String escape(String value) {
+        return value.replace("\"", "%22").replace("\r", "%0D").replace("\n", "%0A");
+    }
+
+    private byte[] closing() {
+        return ("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        long length = closing().length;
+        for (Part part : parts) {
+            long content = part.length();
+            if (content < 0) {
+                return -1;
+            }
+            length += part.head().length + content + CRLF.length;
+        }
+        return length;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        for (Part part : parts) {
+            out.write(part.head());
+            if (part.data() != null) {
+                out.write(part.data());
+            } else if (Files.isRegularFile(part.file())) {
+                try (FileChannel channel = FileChannel.open(part.file(), StandardOpenOption.READ)) {
+                    transfer(channel, channel.size(), Channels.newChannel(out));
+                }
+            } else {
+                try (InputStream in = Files.newInputStream(part.file())) {
+                    in.transferTo(out);
+                }
+            }
+            out.write(CRLF);
+        }
+        out.write(closing());
+    }
+
+    /**
+     * Streamed once there is a file part; a body of plain fields is small
+     * enough for the connection to buffer (which keeps redirects and
+     * authentication retries working on HttpURLConnection).
+     */
+    @Override
+    public boolean isStreamed() {
+        return parts.stream().anyMatch(part -> part.file() != null);
+    }
+
+    @Override
+    HttpRequest.BodyPublisher publisher() throws IOException {
+        List<HttpRequest.BodyPublisher> publishers = new ArrayList<>(parts.size() * 3 + 1);
+        for (Part part : parts) {
+            publishers.add(HttpRequest.BodyPublishers.ofByteArray(part.head()));
+            if (part.data() != null) {
+                publishers.add(HttpRequest.BodyPublishers.ofByteArray(part.data()));
+            } else if (Files.isRegularFile(part.file())) {
+                publishers.add(HttpRequest.BodyPublishers.ofFile(part.file()));
+            } else {
+                Path file = part.file();
+                publishers.add(HttpRequest.BodyPublishers.ofInputStream(() -> {
+                    try {
+                        return Files.newInputStream(file);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+            publishers.add(HttpRequest.BodyPublishers.ofByteArray(CRLF));
+        }
+        publishers.add(HttpRequest.BodyPublishers.ofByteArray(closing()));
+        return HttpRequest.BodyPublishers.concat(publishers.toArray(new HttpRequest.BodyPublisher[0]));
+    }
+
+    @Override
+    public String toString() {
+        return "multipart form, " + parts.size() + " parts";
+    }
+}
@@ -0,0 +1,161 @@
+package com.curlbaby;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A request body that can be sent any number of times (retries, benchmarks,
+ * group runs): bytes in memory, or a file that is read from disk on every
+ * send and never loaded onto the heap.
+ *
+ * Streamed bodies are sent with a fixed Content-Length when the length is
+ * known up front, and chunked otherwise.
+ */
+public abstract class RequestBody {
+
+    /**
+     * Body length in bytes, or -1 if it is only known once written.
+     *
+     * @throws IOException if a file behind the body cannot be read
+     */
+    public abstract long contentLength() throws IOException;
+
+    /**
+     * Write the whole body to out, without closing it.
+     */
+    public abstract void writeTo(OutputStream out) throws IOException;
+
+    /**
+     * Whether the body should be streamed to the connection rather than
+     * buffered by it (HttpURLConnection holds a buffered body in memory to
+     * compute Content-Length).
+     */
+    public abstract boolean isStreamed();
+
+    /**
+     * The same body for HttpClient.
+     */
+    abstract HttpRequest.BodyPublisher publisher() throws IOException;
+
+    /**
+     * The absolute path of the file the body is read from, so a saved
+     * request replays it from anywhere; null when the body is in memory.
+     */
+    public Path file() {
+        return null;
+    }
+
+    public static RequestBody of(byte[] bytes) {
+        return new Bytes(bytes);
+    }
+
+    /**
+     * A body read from file on each send, like curl's --data-binary @file.
+     */
+    public static RequestBody ofFile(Path file) {
+        return new FileBody(file);
+    }
+
+    private static final class Bytes extends RequestBody {
+
+        private final byte[] bytes;
+
+        Bytes(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public long contentLength() {
+            return bytes.length;
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(bytes, 0, bytes.length);
+        }
+
+        @Override
+        public boolean isStreamed() {
+            return false;
+        }
+
+        @Override
+        HttpRequest.BodyPublisher publisher() {
+            return HttpRequest.BodyPublishers.ofByteArray(bytes);
+        }
+
+        @Override
+        public String toString() {
+            return bytes.length + " bytes";
+        }
+    }
+
+    /**
+     * Streams a file with FileChannel.transferTo, which the JDK turns into
+     * sendfile when the target is a socket channel and a copy through one
+     * small buffer otherwise. The length is taken when the send starts and
+     * the upload fails if the file changes size underneath it.
+     */
+    private static final class FileBody extends RequestBody {
+
+        private final Path file;
+
+        FileBody(Path file) {
+            this.file = file;
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            if (!Files.isRegularFile(file)) {
+                throw new NoSuchFileException(file.toString(), null, "not a readable file");
+            }
+            return Files.size(file);
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                transfer(channel, channel.size(), Channels.newChannel(out));
+            }
+        }
+
+        @Override
+        public boolean isStreamed() {
+            return true;
+        }
+
+        @Override
+        HttpRequest.BodyPublisher publisher() throws IOException {
+            return HttpRequest.BodyPublishers.ofFile(file);
+        }
+
+        @Override
+        public Path file() {
+            return file.toAbsolutePath();
+        }
+
+        @Override
+        public String toString() {
+            return "file " + file;
+        }
+    }
+
+    static void transfer(FileChannel channel, long length, WritableByteChannel target) throws IOException {
+        long position = 0;
+        while (position < length) {
+            long n = channel.transferTo(position, length - position, target);
+            if (n <= 0) {
+                throw new IOException("File shrank while it was being uploaded");
+            }
+            position += n;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.curlbaby;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Wall-clock checkpoints recorded while a request runs, in the spirit of
+ * curl's -w timing variables. All values are taken from System.nanoTime() and
+ * reported in milliseconds.
+ *
+ * Phases are DNS lookup, TCP connect, TLS handshake, server wait (request
+ * sent until the first response byte) and content transfer. Connection phases
+ * are zero when a kept-alive socket was reused and are not measured at all
+ * for the HTTP/2 client, which does not expose them; isMeasured() tells the
+ * two apart. Over plain http whether the socket was reused is not observed
+ * but predicted by the connection pool; isReuseEstimated() says so.
+ */
+public class RequestTimings {
+
+    private final long startNanos;
+    private long dnsNanos = -1;
+    private long connectNanos = -1;
+    private long tlsNanos = -1;
+    private long firstByteNanos = -1;
+    private long endNanos = -1;
+    private boolean reused;
+    private boolean reuseEstimated;
+
+    private RequestTimings(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    public static RequestTimings start() {
+        return new RequestTimings(System.nanoTime());
+    }
+
+    /**
+     * Called once the host name has been resolved.
+     */
+    public void markDnsResolved() {
+        dnsNanos = System.nanoTime();
+    }
+
+    /**
+     * Called when the TCP connection is established.
+     */
+    public void markConnected() {
+        connectNanos = System.nanoTime();
+        if (dnsNanos < 0) {
+            dnsNanos = startNanos;
+        }
+    }
+
+    /**
+     * Called when the TLS handshake has completed.
+     */
+    public void markTlsHandshaken() {
+        tlsNanos = System.nanoTime();
+    }
+
+    /**
+     * Called when the request went out on a kept-alive socket, so there was no
+     * DNS lookup, connect or handshake.
+     */
+    public void markReused() {
+        reused = true;
+        dnsNanos = startNanos;
+        connectNanos = startNanos;
+        tlsNanos = -1;
+    }
+
+    /**
+     * Called when reuse (or a new connection) was predicted rather than
+     * observed, as on plain http.
+     */
+    public void markReuseEstimated() {
+        reuseEstimated = true;
+    }
+
+    /**
+     * Called when the status line and headers have arrived.
+     */
+    public void markFirstByte() {
+        firstByteNanos = System.nanoTime();
+    }
+
+    /**
+     * Called once the body has been read to the end.
+     */
+    public void markEnd() {
+        endNanos = System.nanoTime();
+        if (firstByteNanos < 0) {
+            firstByteNanos = endNanos;
+        }
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * Whether the connection phases (DNS, connect, TLS) were recorded.
+     */
+    public boolean isMeasured() {
+        return connectNanos >= 0;
+    }
+
+    public boolean isReused() {
+        return reused;
+    }
+
+    public boolean isReuseEstimated() {
+        return reuseEstimated;
+    }
+
+    public boolean isTls() {
+        return tlsNanos >= 0;
+    }
+
+    public double getDnsMillis() {
+        return dnsNanos < 0 ? 0 : toMillis(dnsNanos - startNanos);
+    }
+
+    public double getConnectMillis() {
+        return connectNanos < 0 ? 0 : toMillis(connectNanos - dnsNanos);
+    }
+
+    public double getTlsMillis() {
+        return tlsNanos < 0 || connectNanos < 0 ? 0 : toMillis(tlsNanos - connectNanos);
+    }
+
+    /**
+     * Time from the connection being ready until the first response byte:
+     * sending the request plus the server's processing time.
+     */
+    public double getWaitMillis() {
+        return firstByteNanos < 0 ? 0 : toMillis(firstByteNanos - connectionReadyNanos());
+    }
+
+    /**
+     * Time from the start until the first response byte, including all
+     * connection phases (curl's time_starttransfer).
+     */
+    public double getTimeToFirstByteMillis() {
+        return firstByteNanos < 0 ? 0 : toMillis(firstByteNanos - startNanos);
+    }
+
+    public double getTransferMillis() {
+        return endNanos < 0 ? 0 : toMillis(endNanos - firstByteNanos);
+    }
+
+    public double getTotalMillis() {
+        return endNanos < 0 ? 0 : toMillis(endNanos - startNanos);
+    }
+
+    public long getTotalNanos() {
+        return endNanos < 0 ? 0 : endNanos - startNanos;
+    }
+
+    /**
+     * Every phase in milliseconds, keyed by name, for reports and exports.
+     */
+    public Map<String, Double> toMap() {
+        Map<String, Double> phases = new LinkedHashMap<>();
+        if (isMeasured()) {
+            phases.put("dns", getDnsMillis());
+            phases.put("connect", getConnectMillis());
+            phases.put("tls", getTlsMillis());
+        }
+        phases.put("wait", getWaitMillis());
+        phases.put("ttfb", getTimeToFirstByteMillis());
+        phases.put("transfer", getTransferMillis());
+        phases.put("total", getTotalMillis());
+        return phases;
+    }
+
+    private long connectionReadyNanos() {
+        if (tlsNanos >= 0) {
+            return tlsNanos;
+        }
+        return connectNanos >= 0 ? connectNanos : startNanos;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder();
+        if (reused) {
+            summary.append(reuseEstimated ? "reused connection (est.) | " : "reused connection | ");
+        } else if (isMeasured()) {
+            summary.append(String.format("DNS %.1f ms | Connect %.1f ms | ", getDnsMillis(), getConnectMillis()));
+            if (isTls()) {
+                summary.append(String.format("TLS %.1f ms | ", getTlsMillis()));
+            }
+        }
+        summary.append(String.format("TTFB %.1f ms | Transfer %.1f ms | Total %.1f ms",
+                getTimeToFirstByteMillis(), getTransferMillis(), getTotalMillis()));
+        return summary.toString();
+    }
+}
@@ -0,0 +1,96 @@
+package com.curlbaby;
+
+import com.curlbaby.HttpRequestHandler.Response;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+/**
+ * Writes response bodies to the terminal or a file while they are still
+ * arriving. Bytes move through one fixed buffer per thread, so memory use is
+ * the same for a 1 KB body and a 5 GB one.
+ */
+public class ResponseStreamer {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private final JsonFormatter jsonFormatter;
+    private final UIManager uiManager;
+    private volatile String outputFile; // null streams to the terminal
+
+    public ResponseStreamer(JsonFormatter jsonFormatter, UIManager uiManager) {
+        this.jsonFormatter = jsonFormatter;
+        this.uiManager = uiManager;
+    }
+
+    public String getOutputFile() {
+        return outputFile;
+    }
+
+    /**
+     * Send bodies to the given file instead of the terminal; null restores terminal output.
+     */
+    public void setOutputFile(String outputFile) {
+        this.outputFile = outputFile;
+    }
+
+    /**
+     * Stream one response body to the configured destination.
+     *
+     * @return the number of body bytes read
+     */
+    public long stream(Response head, InputStream body) throws IOException {
+        String file = outputFile;
+        if (file != null) {
+            return saveTo(file, body);
+        }
+
+        long bytes;
+        if (isJson(head)) {
+            // Pretty-print token by token instead of buffering the whole document
+            bytes = jsonFormatter.formatJson(body, System.out);
+        } else {
+            bytes = copy(body, System.out);
+        }
+        System.out.println();
+        System.out.flush();
+        return bytes;
+    }
+
+    /**
+     * Write a body to the given file, whatever the configured destination.
+     *
+     * @return the number of body bytes written
+     */
+    public long saveTo(String file, InputStream body) throws IOException {
+        long bytes;
+        try (OutputStream out = Files.newOutputStream(WorkingDirectory.resolve(file))) {
+            bytes = copy(body, out);
+        }
+        uiManager.displaySuccess("Body saved to " + file + " (" + BenchmarkRunner.formatBytes(bytes) + ")");
+        return bytes;
+    }
+
+    /**
+     * Copy a stream through this thread's reusable buffer, flushing after each
+     * chunk so output keeps pace with the network.
+     */
+    public static long copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = BUFFERS.get();
+        long total = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+            out.flush();
+            total += n;
+        }
+        return total;
+    }
+
+    private static boolean isJson(Response head) {
+        String contentType = head.getHeader("Content-Type");
+        return contentType != null && contentType.toLowerCase().contains("json");
+    }
+}
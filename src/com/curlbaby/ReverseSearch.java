@@ -0,0 +1,100 @@
+package com.curlbaby;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Ctrl-R prompt of the line editors: searches the whole command history
+ * as the query is typed and shows the best match.
+ *
+ * Ctrl-R again moves to the next match, Enter runs the match, Tab or Esc
+ * puts it on the line for editing, and Ctrl-G or Ctrl-C gives up and leaves
+ * the line as it was.
+ */
+class ReverseSearch {
+
+    private static final int MAX_MATCHES = 50;
+
+    private static final int CTRL_C = 3;
+    private static final int CTRL_G = 7;
+    private static final int BACKSPACE_CTRL_H = 8;
+    private static final int TAB = 9;
+    private static final int LINE_FEED = 10;
+    private static final int CARRIAGE_RETURN = 13;
+    private static final int CTRL_R = 18;
+    private static final int ESC = 27;
+    private static final int BACKSPACE = 127;
+
+    /**
+     * Where keys come from; returns -1 at end of input.
+     */
+    interface KeySource {
+        int read() throws IOException;
+    }
+
+    /**
+     * What the search ended with: the chosen line, or null if cancelled,
+     * and whether it should be run right away.
+     */
+    record Result(String line, boolean run) {
+    }
+
+    private final CommandHistory history;
+    private final UIManager uiManager;
+
+    ReverseSearch(CommandHistory history, UIManager uiManager) {
+        this.history = history;
+        this.uiManager = uiManager;
+    }
+
+    Result run(KeySource keys) throws IOException {
+        StringBuilder query = new StringBuilder();
+        List<String> matches = Collections.emptyList();
+        int selected = 0;
+        render(query, matches, selected);
+
+        while (true) {
+            int key = keys.read();
+            String match = selected < matches.size() ? matches.get(selected) : null;
+
+            if (key == -1 || key == CTRL_C || key == CTRL_G) {
+                return new Result(null, false);
+            } else if (key == LINE_FEED || key == CARRIAGE_RETURN) {
+                return new Result(match, match != null);
+            } else if (key == TAB || key == ESC) {
+                return new Result(match, false);
+            } else if (key == CTRL_R) {
+                if (selected + 1 < matches.size()) {
+                    selected++;
+                }
+            } else if (key == BACKSPACE || key == BACKSPACE_CTRL_H) {
+                if (query.length() > 0) {
+                    query.setLength(query.length() - 1);
+                    matches = search(query);
+                    selected = 0;
+                }
+            } else if (key >= 32 && key < 127) {
+                query.append((char) key);
+                matches = search(query);
+                selected = 0;
+            }
+            render(query, matches, selected);
+        }
+    }
+
+    private List<String> search(CharSequence query) {
+        return query.length() == 0 ? Collections.emptyList() : history.search(query.toString(), MAX_MATCHES);
+    }
+
+    private void render(CharSequence query, List<String> matches, int selected) {
+        boolean failed = query.length() > 0 && matches.isEmpty();
+        String match = selected < matches.size() ? matches.get(selected) : "";
+        // Show multi-line commands on one line
+        match = match.replace("\n", "\\n");
+        System.out.print("\r\u001b[2K" + uiManager.getBoldYellow()
+                + (failed ? "(failed reverse-i-search)`" : "(reverse-i-search)`") + query + "': "
+                + uiManager.getReset() + match);
+        System.out.flush();
+    }
+}
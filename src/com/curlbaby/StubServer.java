@@ -0,0 +1,421 @@
+package com.curlbaby;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local HTTP server behind the 'serve' command, giving benchmarks and retry
+ * experiments a target that needs no network and behaves the same on every
+ * run.
+ *
+ * Every request gets a JSON body of the configured size after the configured
+ * latency, optionally sent in chunks. A configured share of requests fails
+ * with an error status, and another share has its connection dropped before
+ * any response is sent. All of it is drawn from a random generator seeded
+ * with the server's seed and the request's arrival number, so a run with the
+ * same seed and request order sees the same faults. Query parameters
+ * (latency, size, status, chunked, fault) override the settings per request.
+ */
+public class StubServer {
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final long DEFAULT_SIZE = 1024;
+    public static final int DEFAULT_CHUNK_SIZE = 8192;
+    private static final long MAX_LATENCY_MILLIS = 60_000;
+    private static final byte[] FILLER = new byte[64 * 1024];
+
+    private static StubServer running;
+
+    static {
+        Arrays.fill(FILLER, (byte) 'x');
+    }
+
+    /**
+     * How long the server waits before answering, in milliseconds: fixed
+     * ("50"), uniform ("20-200"), exponential with a mean ("exp:50") or
+     * normal with a mean and standard deviation ("normal:100,20").
+     */
+    public record Latency(String kind, double a, double b) {
+
+        public static final Latency NONE = new Latency("fixed", 0, 0);
+
+        public static Latency parse(String spec) {
+            String value = spec.trim().toLowerCase();
+            try {
+                if (value.startsWith("exp:")) {
+                    return new Latency("exp", millis(value.substring(4)), 0);
+                } else if (value.startsWith("normal:")) {
+                    String[] parts = value.substring(7).split(",", 2);
+                    if (parts.length != 2) {
+                        throw new IllegalArgumentException("normal latency needs a mean and a deviation: " + spec);
+                    }
+                    return new Latency("normal", millis(parts[0]), millis(parts[1]));
+                } else if (value.contains("-")) {
+                    String[] parts = value.split("-", 2);
+                    double low = millis(parts[0]);
+                    double high = millis(parts[1]);
+                    if (high < low) {
+                        throw new IllegalArgumentException("Latency range is backwards: " + spec);
+                    }
+                    return new Latency("uniform", low, high);
+                }
+                return new Latency("fixed", millis(value), 0);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid latency: " + spec);
+            }
+        }
+
+        long sampleMillis(SplittableRandom random) {
+            double millis = switch (kind) {
+                case "uniform" -> a + random.nextDouble() * (b - a);
+                case "exp" -> -a * Math.log(1 - random.nextDouble());
+                case "normal" -> a + b * random.nextGaussian();
+                default -> a;
+            };
+            return (long) Math.min(Math.max(0, millis), MAX_LATENCY_MILLIS);
+        }
+
+        @Override
+        public String toString() {
+            return switch (kind) {
+                case "uniform" -> (long) a + "-" + (long) b + " ms";
+                case "exp" -> "exponential, mean " + (long) a + " ms";
+                case "normal" -> "normal, mean " + (long) a + " ms, sd " + (long) b + " ms";
+                default -> (long) a + " ms";
+            };
+        }
+
+        private static double millis(String value) {
+            String trimmed = value.trim();
+            if (trimmed.endsWith("ms")) {
+                return Double.parseDouble(trimmed.substring(0, trimmed.length() - 2));
+            } else if (trimmed.endsWith("s")) {
+                return Double.parseDouble(trimmed.substring(0, trimmed.length() - 1)) * 1000;
+            }
+            return Double.parseDouble(trimmed);
+        }
+    }
+
+    /**
+     * What the server does for each request.
+     */
+    public record Settings(int port, Latency latency, long size, boolean chunked, int chunkSize,
+            double errorRate, int errorStatus, double resetRate, long seed) {
+
+        /**
+         * Parse the options of 'serve', e.g. "--port 9000 --latency exp:20 --error-rate 0.05".
+         */
+        public static Settings parse(String[] tokens) {
+            int port = DEFAULT_PORT;
+            Latency latency = Latency.NONE;
+            long size = DEFAULT_SIZE;
+            boolean chunked = false;
+            int chunkSize = DEFAULT_CHUNK_SIZE;
+            double errorRate = 0;
+            int errorStatus = 500;
+            double resetRate = 0;
+            long seed = 1;
+
+            for (int i = 0; i < tokens.length; i++) {
+                String option = tokens[i];
+                if (option.isEmpty()) {
+                    continue;
+                }
+                if (option.equals("--chunked")) {
+                    chunked = true;
+                    continue;
+                }
+                if (i + 1 >= tokens.length) {
+                    throw new IllegalArgumentException("Missing value for " + option);
+                }
+                String value = tokens[++i];
+                try {
+                    switch (option) {
+                        case "-p":
+                        case "--port":
+                            port = Integer.parseInt(value);
+                            break;
+                        case "--latency":
+                            latency = Latency.parse(value);
+                            break;
+                        case "--size":
+                            size = parseSize(value);
+                            break;
+                        case "--chunk-size":
+                            chunkSize = (int) parseSize(value);
+                            chunked = true;
+                            break;
+                        case "--error-rate":
+                            errorRate = parseRate(value);
+                            break;
+                        case "--error-status":
+                            errorStatus = Integer.parseInt(value);
+                            break;
+                        case "--reset-rate":
+                            resetRate = parseRate(value);
+                            break;
+                        case "--seed":
+                            seed = Long.parseLong(value);
+                            break;
+                        default:
+                            throw new IllegalArgumentException("Unexpected argument: " + option);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid value for " + option + ": " + value);
+                }
+            }
+            if (port < 0 || port > 65535) {
+                throw new IllegalArgumentException("Invalid port: " + port);
+            }
+            if (chunkSize < 1) {
+                throw new IllegalArgumentException("Chunk size must be at least 1 byte");
+            }
+            if (errorStatus < 400 || errorStatus > 599) {
+                throw new IllegalArgumentException("Error status must be between 400 and 599");
+            }
+            return new Settings(port, latency, size, chunked, chunkSize, errorRate, errorStatus, resetRate, seed);
+        }
+    }
+
+    private final Settings settings;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    private StubServer(Settings settings) throws IOException {
+        // Small responses would otherwise wait on Nagle's algorithm; read once
+        // when the JDK server first starts
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.settings = settings;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", settings.port()), 1024);
+        this.executor = TaskExecutors.newUnboundedExecutor("curlbaby-stub");
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Start the process's stub server; only one runs at a time.
+     */
+    public static synchronized StubServer start(Settings settings) throws IOException {
+        if (running != null) {
+            throw new IOException("A stub server is already running on port " + running.getPort());
+        }
+        StubServer stub = new StubServer(settings);
+        stub.server.start();
+        running = stub;
+        return stub;
+    }
+
+    /**
+     * The running stub server, or null.
+     */
+    public static synchronized StubServer getRunning() {
+        return running;
+    }
+
+    public void stop() {
+        synchronized (StubServer.class) {
+            if (running == this) {
+                running = null;
+            }
+        }
+        server.stop(0);
+        executor.shutdownNow();
+        stopped.countDown();
+    }
+
+    /**
+     * Block until stop() is called, for one-shot 'curlbaby serve'.
+     */
+    public void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public long getResets() {
+        return resets.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long number = requests.incrementAndGet();
+        SplittableRandom random = new SplittableRandom(settings.seed() * 0x9E3779B97F4A7C15L + number);
+        try {
+            // Drain the upload so the connection stays usable
+            exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+            Map<String, String> query = parseQuery(exchange.getRequestURI());
+
+            // Draw every decision up front so the sequence does not depend on overrides
+            boolean reset = random.nextDouble() < settings.resetRate();
+            boolean error = random.nextDouble() < settings.errorRate();
+            long latencyMillis = settings.latency().sampleMillis(random);
+
+            if (query.containsKey("latency")) {
+                latencyMillis = Latency.parse(query.get("latency")).sampleMillis(random);
+            }
+            if (query.containsKey("fault")) {
+                reset = query.get("fault").equals("reset");
+            }
+            int status = error ? settings.errorStatus() : 200;
+            if (query.containsKey("status")) {
+                status = Integer.parseInt(query.get("status"));
+            }
+            long size = query.containsKey("size") ? parseSize(query.get("size")) : settings.size();
+            boolean chunked = query.containsKey("chunked")
+                    ? !query.get("chunked").equals("false") && !query.get("chunked").equals("0")
+                    : settings.chunked();
+
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            if (reset) {
+                // Closing before the status line makes the server drop the connection
+                resets.incrementAndGet();
+                return;
+            }
+            if (status >= 400) {
+                errors.incrementAndGet();
+            }
+            respond(exchange, status, size, chunked);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IllegalArgumentException e) {
+            byte[] message = ("{\"error\":\"" + String.valueOf(e.getMessage()).replace("\"", "'") + "\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(400, message.length);
+            exchange.getResponseBody().write(message);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Send a JSON body of exactly size bytes, {"data":"xxx..."}, from a shared
+     * filler buffer so large payloads cost no allocation.
+     */
+    private void respond(HttpExchange exchange, int status, long size, boolean chunked) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", size >= 11 ? "application/json" : "text/plain");
+        boolean head = exchange.getRequestMethod().equalsIgnoreCase("HEAD");
+        if (head || status == 204 || status == 304) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        // A length of 0 tells the JDK server to use chunked transfer encoding, -1 that there is no body
+        exchange.sendResponseHeaders(status, chunked ? 0 : size == 0 ? -1 : size);
+
+        OutputStream out = exchange.getResponseBody();
+        int chunk = chunked ? settings.chunkSize() : FILLER.length;
+        byte[] prefix = "{\"data\":\"".getBytes(StandardCharsets.US_ASCII);
+        byte[] suffix = "\"}".getBytes(StandardCharsets.US_ASCII);
+        boolean json = size >= prefix.length + suffix.length;
+        long remaining = size;
+        if (json) {
+            out.write(prefix);
+            remaining -= prefix.length + suffix.length;
+        }
+        while (remaining > 0) {
+            int n = (int) Math.min(Math.min(remaining, chunk), FILLER.length);
+            out.write(FILLER, 0, n);
+            if (chunked) {
+                out.flush();
+            }
+            remaining -= n;
+        }
+        if (json) {
+            out.write(suffix);
+        }
+        bytesSent.addAndGet(size);
+    }
+
+    private static Map<String, String> parseQuery(URI uri) {
+        Map<String, String> query = new HashMap<>();
+        String raw = uri.getRawQuery();
+        if (raw == null) {
+            return query;
+        }
+        for (String pair : raw.split("&")) {
+            String[] keyValue = pair.split("=", 2);
+            query.put(keyValue[0], keyValue.length == 2 ? keyValue[1] : "");
+        }
+        return query;
+    }
+
+    /**
+     * Parse a byte count such as "512", "10k", "4kb" or "1m".
+     */
+    static long parseSize(String value) {
+        String trimmed = value.trim().toLowerCase();
+        if (trimmed.endsWith("b")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        long multiplier = 1;
+        if (trimmed.endsWith("k")) {
+            multiplier = 1024;
+        } else if (trimmed.endsWith("m")) {
+            multiplier = 1024 * 1024;
+        } else if (trimmed.endsWith("g")) {
+            multiplier = 1024L * 1024 * 1024;
+        }
+        if (multiplier > 1) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        try {
+            long size = Long.parseLong(trimmed) * multiplier;
+            if (size < 0) {
+                throw new IllegalArgumentException("Size cannot be negative: " + value);
+            }
+            return size;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid size: " + value);
+        }
+    }
+
+    private static double parseRate(String value) {
+        String trimmed = value.trim();
+        double rate = trimmed.endsWith("%")
+                ? Double.parseDouble(trimmed.substring(0, trimmed.length() - 1)) / 100
+                : Double.parseDouble(trimmed);
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("Rate must be between 0 and 1: " + value);
+        }
+        return rate;
+    }
+}
@@ -0,0 +1,134 @@
+package com.curlbaby;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for fan-out work such as group runs, benchmarks and batch files.
+ */
+public final class TaskExecutors {
+
+    private TaskExecutors() {
+    }
+
+    /**
+     * An executor that runs at most {@code concurrency} tasks at a time.
+     *
+     * On runtimes with virtual threads (Java 21+) every task gets its own
+     * virtual thread and a semaphore enforces the bound, so thousands of tasks
+     * blocked on the network cost almost nothing. Older runtimes fall back to a
+     * fixed pool of daemon platform threads.
+     */
+    public static ExecutorService newBoundedExecutor(int concurrency, String threadName) {
+        ExecutorService virtualExecutor = newVirtualThreadExecutor();
+        if (virtualExecutor != null) {
+            return new BoundedExecutor(virtualExecutor, concurrency);
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, threadName + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * An executor with a thread per task and no bound, for servers whose
+     * tasks mostly sleep or wait: virtual threads when available, otherwise a
+     * cached pool of daemon platform threads.
+     */
+    public static ExecutorService newUnboundedExecutor(String threadName) {
+        ExecutorService virtualExecutor = newVirtualThreadExecutor();
+        if (virtualExecutor != null) {
+            return virtualExecutor;
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, threadName + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static boolean supportsVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gates a thread-per-task executor so only a fixed number of tasks run at once.
+     */
+    private static class BoundedExecutor extends AbstractExecutorService {
+
+        private final ExecutorService delegate;
+        private final Semaphore permits;
+
+        BoundedExecutor(ExecutorService delegate, int concurrency) {
+            this.delegate = delegate;
+            this.permits = new Semaphore(concurrency);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                try {
+                    command.run();
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
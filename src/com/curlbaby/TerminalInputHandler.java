@@ -6,7 +6,8 @@ import java.util.concurrent.LinkedBlockingQueue;
 
 public class TerminalInputHandler {
     private final UIManager uiManager;
-    private final CommandHistoryDatabase historyDb;
+    private final CommandHistory history;
+    private int historyIndex;
     
     private static final int ESC = 27;
     private static final int BRACKET = 91;
@@ -19,9 +20,9 @@ public class TerminalInputHandler {
     private final BlockingQueue<Integer> keyPressQueue = new LinkedBlockingQueue<>();
     private volatile boolean isReading = false;
     
-    public TerminalInputHandler(UIManager uiManager, CommandHistoryDatabase historyDb) {
+    public TerminalInputHandler(UIManager uiManager, CommandHistory history) {
         this.uiManager = uiManager;
-        this.historyDb = historyDb;
+        this.history = history;
     }
     
     public void startKeyListener() {
@@ -72,6 +73,7 @@ public class TerminalInputHandler {
         
         StringBuilder buffer = new StringBuilder();
         int cursorPosition = 0;
+        historyIndex = history.getCommandCount();
         
         uiManager.printPrompt();
         
@@ -102,9 +104,9 @@ public class TerminalInputHandler {
                         if (arrowKey == null) continue;
                         
                         if (arrowKey == UP_ARROW) {
-                            String previousCommand = historyDb.getPreviousCommand();
-                            if (!previousCommand.isEmpty()) {
-                                buffer = new StringBuilder(previousCommand);
+                            if (historyIndex > 0) {
+                                historyIndex--;
+                                buffer = new StringBuilder(history.get(historyIndex));
                                 cursorPosition = buffer.length();
                                 
                                 System.out.print("\u001b[2K\r");
@@ -112,7 +114,9 @@ public class TerminalInputHandler {
                                 System.out.print(buffer.toString());
                             }
                         } else if (arrowKey == DOWN_ARROW) {
-                            String nextCommand = historyDb.getNextCommand();
+                            int historySize = history.getCommandCount();
+                            historyIndex = Math.min(historyIndex + 1, historySize);
+                            String nextCommand = historyIndex < historySize ? history.get(historyIndex) : "";
                             buffer = new StringBuilder(nextCommand);
                             cursorPosition = buffer.length();
                             
@@ -144,7 +148,7 @@ public class TerminalInputHandler {
         
         String result = buffer.toString();
         if (!result.isEmpty()) {
-            historyDb.addCommand(result);
+            history.addCommand(result);
         }
         return result;
     }
@@ -0,0 +1,90 @@
+package com.curlbaby;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * SSL socket factory that notes when the TCP connection underneath a TLS
+ * session is up, so the connect and handshake phases can be timed apart.
+ *
+ * It deliberately does not implement the no-argument createSocket(): the
+ * HTTPS client then opens a plain socket, connects it, and layers TLS on top
+ * through createSocket(Socket, host, port, autoClose), which is the moment
+ * the TCP connect has finished. One shared instance is used for every request
+ * because the JDK keys its keep-alive cache on the factory; the timings of the
+ * request being connected are passed in through a thread-local.
+ */
+class TimingSSLSocketFactory extends SSLSocketFactory {
+
+    private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+    private static final Map<SSLSocketFactory, TimingSSLSocketFactory> SHARED = new ConcurrentHashMap<>();
+
+    private final SSLSocketFactory delegate;
+
+    private TimingSSLSocketFactory(SSLSocketFactory delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * The wrapper for the given factory, the same instance on every call.
+     */
+    static TimingSSLSocketFactory getShared(SSLSocketFactory delegate) {
+        return SHARED.computeIfAbsent(delegate, TimingSSLSocketFactory::new);
+    }
+
+    /**
+     * Record connect events for the calling thread into the given timings
+     * until clear() is called.
+     */
+    static void track(RequestTimings timings) {
+        CURRENT.set(timings);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+
+    @Override
+    public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+        RequestTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.markConnected();
+        }
+        return delegate.createSocket(socket, host, port, autoClose);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return delegate.createSocket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return delegate.createSocket(host, port, localHost, localPort);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return delegate.createSocket(host, port);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+            throws IOException {
+        return delegate.createSocket(address, port, localAddress, localPort);
+    }
+
+    @Override
+    public String[] getDefaultCipherSuites() {
+        return delegate.getDefaultCipherSuites();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return delegate.getSupportedCipherSuites();
+    }
+}
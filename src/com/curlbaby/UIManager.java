@@ -1,5 +1,7 @@
 package com.curlbaby;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class UIManager {
 
     private static final String RESET = "\033[0m";
@@ -14,6 +16,13 @@ public class UIManager {
     private static final String YELLOW = "\033[0;33m";
     private static final String PINK = "\033[1;35m"; // Using bold magenta as a more compatible pink
 
+    // Errors shown by any UIManager, so one-shot runs can set their exit status
+    private static final AtomicInteger ERROR_COUNT = new AtomicInteger();
+
+    public static int getErrorCount() {
+        return ERROR_COUNT.get();
+    }
+
     public String getReset() {
         return RESET;
     }
@@ -93,6 +102,7 @@ public class UIManager {
     }
 
     public void printError(String message) {
+        ERROR_COUNT.incrementAndGet();
         System.out.println(BOLD_RED + "✗ " + message + RESET);
     }
 
@@ -0,0 +1,30 @@
+package com.curlbaby;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Where relative file names in commands (-d @file, -o, batch files, ...)
+ * are resolved. That is the process's own directory, except while the daemon
+ * runs a forwarded command, when it is the directory of the client that sent
+ * it: the daemon's JVM cannot change its own.
+ */
+final class WorkingDirectory {
+
+    private static volatile Path current; // null: the process's directory
+
+    private WorkingDirectory() {
+    }
+
+    static Path resolve(String path) {
+        Path directory = current;
+        return directory != null ? directory.resolve(path) : Paths.get(path);
+    }
+
+    /**
+     * Resolve against directory until cleared with null.
+     */
+    static void set(Path directory) {
+        current = directory;
+    }
+}